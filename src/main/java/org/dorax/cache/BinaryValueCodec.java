@@ -0,0 +1,353 @@
+package org.dorax.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 紧凑的无模式二进制序列化方式
+ * 每个值以一个类型标记开头，整数使用 zigzag 变长编码，字符串按字符编码为 UTF-8，不写入任何类描述信息。
+ * 支持 null、基本类型包装类、String、byte[]、BigDecimal、BigInteger、Date 以及由它们组成的 List、Set、Map，
+ * 读取时只会创建上述类型，不存在反序列化任意类的风险；其他类型请使用 {@link FastjsonValueCodec}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class BinaryValueCodec implements ValueCodec {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTES = 8;
+    private static final byte LIST = 9;
+    private static final byte SET = 10;
+    private static final byte MAP = 11;
+    private static final byte SHORT = 12;
+    private static final byte BYTE = 13;
+    private static final byte CHAR = 14;
+    private static final byte BIG_DECIMAL = 15;
+    private static final byte BIG_INTEGER = 16;
+    private static final byte DATE = 17;
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Output out = new Output(64);
+        write(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        Input in = new Input(bytes);
+        Object value = read(in);
+        if (in.position != bytes.length) {
+            throw new IllegalArgumentException("trailing bytes after value");
+        }
+        return value;
+    }
+
+    private static void write(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeVarLong(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeVarLong(Float.floatToRawIntBits((Float) value) & 0xffffffffL);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeVarLong(zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BYTES);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            out.writeByte(BIG_INTEGER);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeVarLong(zigzag(((Date) value).getTime()));
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeVarLong(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                write(out, e.getKey());
+                write(out, e.getValue());
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(value instanceof Set ? SET : LIST);
+            out.writeVarLong(collection.size());
+            for (Object o : collection) {
+                write(out, o);
+            }
+        } else {
+            throw new IllegalArgumentException("unsupported type " + value.getClass().getName());
+        }
+    }
+
+    private static Object read(Input in) {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) unzigzag(in.readVarLong());
+            case LONG:
+                return unzigzag(in.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case STRING:
+                return in.readString();
+            case BYTES:
+                return in.readBytes(in.readLength());
+            case LIST: {
+                int size = in.readLength();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(in));
+                }
+                return list;
+            }
+            case SET: {
+                int size = in.readLength();
+                Set<Object> set = new LinkedHashSet<>(capacity(size));
+                for (int i = 0; i < size; i++) {
+                    set.add(read(in));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = in.readLength();
+                Map<Object, Object> map = new LinkedHashMap<>(capacity(size));
+                for (int i = 0; i < size; i++) {
+                    map.put(read(in), read(in));
+                }
+                return map;
+            }
+            case SHORT:
+                return (short) unzigzag(in.readVarLong());
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BIG_INTEGER:
+                return new BigInteger(in.readBytes(in.readLength()));
+            case DATE:
+                return new Date(unzigzag(in.readVarLong()));
+            default:
+                throw new IllegalArgumentException("unknown type " + type);
+        }
+    }
+
+    private static long zigzag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long unzigzag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int position;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void ensure(int n) {
+            if (position + n > buffer.length) {
+                byte[] bigger = new byte[Math.max(buffer.length << 1, position + n)];
+                System.arraycopy(buffer, 0, bigger, 0, position);
+                buffer = bigger;
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[position++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[position++] = (byte) v;
+        }
+
+        void writeFixedLong(long v) {
+            ensure(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                buffer[position++] = (byte) (v >>> i);
+            }
+        }
+
+        /**
+         * 写入字符数，随后逐个字符按 UTF-8 规则编码，代理对的两个字符分别编码
+         */
+        void writeString(String s) {
+            int length = s.length();
+            writeVarLong(length);
+            ensure(length * 3);
+            byte[] b = buffer;
+            int p = position;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    b[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[p++] = (byte) (0xC0 | (c >> 6));
+                    b[p++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    b[p++] = (byte) (0xE0 | (c >> 12));
+                    b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    b[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            position = p;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[position];
+            System.arraycopy(buffer, 0, result, 0, position);
+            return result;
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("unexpected end of value");
+            }
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int n) {
+            if (n > buffer.length - position) {
+                throw new IllegalArgumentException("unexpected end of value");
+            }
+            byte[] bytes = new byte[n];
+            System.arraycopy(buffer, position, bytes, 0, n);
+            position += n;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        /**
+         * 读取长度并做基本校验，防止被篡改的数据一次分配巨大的数组
+         */
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        long readFixedLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (readByte() & 0xFF);
+            }
+            return v;
+        }
+
+        String readString() {
+            int length = readLength();
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                int c = readByte() & 0xFF;
+                if (c < 0x80) {
+                    chars[i] = (char) c;
+                } else if (c < 0xE0) {
+                    chars[i] = (char) (((c & 0x1F) << 6) | (readByte() & 0x3F));
+                } else {
+                    chars[i] = (char) (((c & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F));
+                }
+            }
+            return new String(chars);
+        }
+    }
+}
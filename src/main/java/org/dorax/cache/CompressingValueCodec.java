@@ -0,0 +1,120 @@
+package org.dorax.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 超过阈值时压缩的序列化方式，包装另一个 {@link ValueCodec}
+ * 输出的第一个字节标记是否压缩，小于阈值的值原样保存，不付出压缩的 CPU 开销。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class CompressingValueCodec implements ValueCodec {
+
+    private static final byte RAW = 0;
+    private static final byte DEFLATE = 1;
+
+    private final ValueCodec delegate;
+    private final int threshold;
+    private final int level;
+
+    /**
+     * 使用最快的压缩级别
+     *
+     * @param delegate  实际的序列化方式
+     * @param threshold 压缩阈值（字节）
+     */
+    public CompressingValueCodec(ValueCodec delegate, int threshold) {
+        this(delegate, threshold, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param delegate  实际的序列化方式
+     * @param threshold 压缩阈值（字节）
+     * @param level     压缩级别，见 {@link Deflater}
+     */
+    public CompressingValueCodec(ValueCodec delegate, int threshold, int level) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] bytes = delegate.encode(value);
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length >= threshold) {
+            byte[] compressed = deflate(bytes);
+            if (compressed.length < bytes.length) {
+                return compressed;
+            }
+        }
+        byte[] result = new byte[bytes.length + 1];
+        result[0] = RAW;
+        System.arraycopy(bytes, 0, result, 1, bytes.length);
+        return result;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        switch (bytes[0]) {
+            case RAW:
+                byte[] raw = new byte[bytes.length - 1];
+                System.arraycopy(bytes, 1, raw, 0, raw.length);
+                return delegate.decode(raw);
+            case DEFLATE:
+                return delegate.decode(inflate(bytes));
+            default:
+                throw new IllegalArgumentException("unknown compression flag " + bytes[0]);
+        }
+    }
+
+    private byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("truncated compressed value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.dorax.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于 fastjson 的序列化方式
+ * 写入时带上类型信息，读取时只还原白名单包下的类型，其他类型一律拒绝，避免任意类反序列化。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class FastjsonValueCodec implements ValueCodec {
+
+    private final ParserConfig parserConfig = new ParserConfig();
+
+    /**
+     * 构造函数
+     *
+     * @param acceptPackages 允许反序列化的包名前缀，例如 "org.dorax."
+     */
+    public FastjsonValueCodec(String... acceptPackages) {
+        for (String acceptPackage : acceptPackages) {
+            parserConfig.addAccept(acceptPackage);
+        }
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return JSON.toJSONBytes(value, SerializerFeature.WriteClassName);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return JSON.parseObject(bytes, StandardCharsets.UTF_8, Object.class, parserConfig, null, JSON.DEFAULT_PARSER_FEATURE);
+    }
+}
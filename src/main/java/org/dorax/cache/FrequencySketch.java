@@ -0,0 +1,125 @@
+package org.dorax.cache;
+
+/**
+ * 基于 Count-Min Sketch 的访问频率估计器，为 {@link SimpleCache} 的 TinyLFU 准入策略提供依据
+ * 每个 long 中存放 16 个 4 位计数器，单个计数器最大为 15；
+ * 当累计的增量达到采样上限时，所有计数器减半，使历史热点随时间衰减。
+ * 非线程安全，调用方需要在锁保护下访问。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class FrequencySketch {
+
+    private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch(long initialCapacity) {
+        ensureCapacity(initialCapacity);
+    }
+
+    /**
+     * 按预计的条目数调整计数表大小，只增不减，扩容会丢弃已有的频率信息
+     *
+     * @param maximumSize 预计的条目数
+     */
+    void ensureCapacity(long maximumSize) {
+        int maximum = (int) Math.min(Math.max(maximumSize, 1), MAXIMUM_CAPACITY);
+        if (table != null && table.length >= maximum) {
+            return;
+        }
+        table = new long[ceilingPowerOfTwo(maximum)];
+        tableMask = table.length - 1;
+        sampleSize = 10 * maximum;
+        size = 0;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * 返回估计的访问频率，最大为 15
+     *
+     * @param hash 经过 {@link #spread(int)} 处理的哈希值
+     * @return 估计的频率
+     */
+    int frequency(int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 访问频率加一，计数器已饱和时保持不变
+     *
+     * @param hash 经过 {@link #spread(int)} 处理的哈希值
+     */
+    void increment(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 所有计数器减半，奇数计数截断产生的误差按比例从 size 中扣除
+     */
+    private void reset() {
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            count += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (count >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    /**
+     * 打散 hashCode，避免质量较差的哈希集中在少数计数器上
+     *
+     * @param x 原始哈希值
+     * @return 打散后的哈希值
+     */
+    static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
@@ -0,0 +1,22 @@
+package org.dorax.cache;
+
+import org.dorax.lang.ObjectUtils;
+
+/**
+ * 基于 ObjectOutputStream 的序列化方式，与早期版本写入的数据兼容，也是 {@link RedisUtils} 的默认方式
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class JdkValueCodec implements ValueCodec {
+
+    @Override
+    public byte[] encode(Object value) {
+        return ObjectUtils.serialize(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return ObjectUtils.unserialize(bytes);
+    }
+}
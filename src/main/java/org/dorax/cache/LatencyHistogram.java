@@ -0,0 +1,116 @@
+package org.dorax.cache;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图
+ * 以微秒为单位按 2 的幂分桶，第 i 个桶记录 [2^(i-1), 2^i) 微秒的样本，每个桶是一个 {@link LongAdder}，
+ * 高并发记录时只在各自的 cell 上累加，不会争用同一个变量；分位数按桶的上界估算，误差不超过一倍。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int index = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets[index].increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * 样本数
+     *
+     * @return 样本数
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * 平均耗时
+     *
+     * @return 平均耗时（微秒），没有样本时为 0
+     */
+    public long meanMicros() {
+        long count = count();
+        return count == 0 ? 0 : totalMicros.sum() / count;
+    }
+
+    /**
+     * 最大耗时
+     *
+     * @return 最大耗时（微秒）
+     */
+    public long maxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * 估算分位数
+     *
+     * @param percentile 分位，取值 (0, 100]
+     * @return 样本所在桶的上界（微秒），没有样本时为 0
+     */
+    public long percentileMicros(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(percentile, 100) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : Math.min((1L << i) - 1, maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    /**
+     * 清空所有样本，与并发的记录之间不保证原子性
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalMicros.reset();
+        maxMicros.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + ", mean=" + meanMicros() + "us, p50=" + percentileMicros(50)
+                + "us, p99=" + percentileMicros(99) + "us, max=" + maxMicros() + "us";
+    }
+}
@@ -0,0 +1,206 @@
+package org.dorax.cache;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisFactory;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 带指标统计的 Jedis 连接池
+ * 在借用和归还连接时更新 {@link RedisPoolMetrics}，并开放空闲连接数的调整，供 {@link RedisPoolSizer} 使用：
+ * 空闲上下限由本类维护，内部连接池的空闲上限放开到最大连接数，归还时空闲连接已达上限则直接关闭，
+ * 不足下限的部分在调整时预先建立。
+ * 命令耗时通过线程本地变量关联借出的连接，同一线程嵌套借用时只统计最内层的一次。
+ * 集群副本的连接池在建立连接后会发送 READONLY，使副本接受读请求。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class MonitoredJedisPool extends JedisPool {
+
+    private static Logger logger = LoggerFactory.getLogger(MonitoredJedisPool.class);
+
+    private final RedisPoolMetrics metrics = new RedisPoolMetrics(this);
+    private final ThreadLocal<Lease> lease = new ThreadLocal<>();
+    private final String address;
+    private final boolean readOnly;
+    private final int maxTotal;
+    private volatile int maxIdle;
+    private volatile int minIdle;
+
+    MonitoredJedisPool(GenericObjectPoolConfig<Jedis> config, HostAndPort node, JedisClientConfig clientConfig, boolean readOnly) {
+        super(unboundedIdle(config), new Factory(node, clientConfig, readOnly));
+        this.address = node.toString();
+        this.readOnly = readOnly;
+        this.maxTotal = config.getMaxTotal();
+        this.maxIdle = config.getMaxIdle();
+        this.minIdle = Math.min(config.getMinIdle(), config.getMaxIdle());
+    }
+
+    /**
+     * 空闲上下限由本类控制，内部连接池只保留最大连接数等其余配置
+     */
+    private static GenericObjectPoolConfig<Jedis> unboundedIdle(GenericObjectPoolConfig<Jedis> config) {
+        GenericObjectPoolConfig<Jedis> copy = config.clone();
+        copy.setMaxIdle(config.getMaxTotal());
+        copy.setMinIdle(0);
+        return copy;
+    }
+
+    /**
+     * 节点地址
+     *
+     * @return host:port
+     */
+    String getAddress() {
+        return address;
+    }
+
+    /**
+     * 是否为只读的副本连接池
+     *
+     * @return 是否只读
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    RedisPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Jedis getResource() {
+        long begin = System.nanoTime();
+        try {
+            Jedis jedis = super.getResource();
+            metrics.recordBorrow(System.nanoTime() - begin);
+            return jedis;
+        } catch (JedisExhaustedPoolException e) {
+            metrics.recordExhausted(System.nanoTime() - begin);
+            throw e;
+        } catch (JedisException e) {
+            metrics.recordBorrowFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * 借用连接，并在归还时按命令记录占用耗时
+     *
+     * @param command 命令名
+     * @return jedis 对象
+     */
+    Jedis getResource(String command) {
+        long begin = System.nanoTime();
+        Jedis jedis = getResource();
+        lease.set(new Lease(jedis, command, begin));
+        return jedis;
+    }
+
+    @Override
+    protected void returnResourceObject(Jedis resource) {
+        try {
+            if (maxIdle >= 0 && getNumIdle() >= maxIdle) {
+                // 空闲连接已达上限，关闭而不是放回
+                super.returnBrokenResourceObject(resource);
+            } else {
+                super.returnResourceObject(resource);
+            }
+        } finally {
+            onReturn(resource);
+        }
+    }
+
+    @Override
+    protected void returnBrokenResourceObject(Jedis resource) {
+        try {
+            super.returnBrokenResourceObject(resource);
+        } finally {
+            onReturn(resource);
+        }
+    }
+
+    private void onReturn(Jedis resource) {
+        metrics.recordReturn();
+        Lease current = lease.get();
+        if (current != null && current.jedis == resource) {
+            lease.remove();
+            metrics.recordCommand(current.command, System.nanoTime() - current.begin);
+        }
+    }
+
+    int getMaxIdle() {
+        return maxIdle;
+    }
+
+    int getMinIdle() {
+        return minIdle;
+    }
+
+    int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 调整空闲连接数的上下限，超过上限的连接在归还时关闭，低于下限的部分立即建立
+     * 空闲检测线程关闭的连接不会自动补足，需要周期性调用
+     *
+     * @param minIdle 最小空闲连接数
+     * @param maxIdle 最大空闲连接数
+     */
+    void setIdleBounds(int minIdle, int maxIdle) {
+        this.maxIdle = maxIdle;
+        this.minIdle = Math.min(minIdle, maxIdle);
+        int missing = this.minIdle - getNumIdle();
+        if (missing > 0 && !isClosed()) {
+            try {
+                addObjects(missing);
+            } catch (Exception e) {
+                logger.warn("redis pool {} could not create {} idle connections", address, missing, e);
+            }
+        }
+    }
+
+    private static final class Factory extends JedisFactory {
+        private final boolean readOnly;
+
+        Factory(HostAndPort node, JedisClientConfig clientConfig, boolean readOnly) {
+            super(node, clientConfig);
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public PooledObject<Jedis> makeObject() throws Exception {
+            PooledObject<Jedis> pooled = super.makeObject();
+            if (readOnly) {
+                try {
+                    pooled.getObject().readonly();
+                } catch (RuntimeException e) {
+                    pooled.getObject().close();
+                    throw e;
+                }
+            }
+            return pooled;
+        }
+    }
+
+    private static final class Lease {
+        private final Jedis jedis;
+        private final String command;
+        private final long begin;
+
+        Lease(Jedis jedis, String command, long begin) {
+            this.jedis = jedis;
+            this.command = command;
+            this.begin = begin;
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 基于 {@link RedisUtils} 连接池的异步 Redis 客户端
+ * 每个操作立即返回 {@link CompletableFuture}，请求进入队列后由专用线程批量取出，同一批请求通过一个 pipeline 发送，
+ * 上一批在途期间到达的请求会自动合并到下一批，并发越高单次往返携带的命令越多；多节点时每批按节点分组分别发送。
+ * 同一时刻只有一个线程从队列取批次，一批的命令全部完成后才发送下一批，同一节点上的命令按提交顺序执行，
+ * 同一个 key 先 set 后 get 一定读到新值；执行线程多于 1 个时，一批中发往不同节点的 pipeline 并行发送。
+ * 开启从副本读取时，读请求发往副本，与写请求不在同一个连接上，不保证读到刚写入的值。
+ * future 在执行线程上完成，耗时的后续处理请使用 thenApplyAsync 等方法切换到业务线程池。
+ * 使用前需要先调用 {@link RedisUtils#init(String, int, String)}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisAsync implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisAsync.class);
+
+    private final Queue<Op<?, ?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final ExecutorService executor;
+    private final int concurrency;
+    private volatile boolean closed;
+
+    /**
+     * 使用 1 个执行线程
+     */
+    public RedisAsync() {
+        this(1);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param threads 执行线程数，即一批命令发往多个节点时同时在途的 pipeline 数，单节点时设置为 1 即可
+     */
+    public RedisAsync(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        this.concurrency = threads;
+        this.executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("redis-async"));
+    }
+
+    /**
+     * 获取 String 类型的值
+     *
+     * @param key 键
+     * @return 值，不存在时为 null
+     */
+    public CompletableFuture<String> get(String key) {
+        return submit(key, true, p -> p.get(key), Function.identity());
+    }
+
+    /**
+     * 获取 object 类型的值
+     *
+     * @param key 键
+     * @return 值，不存在时为 null
+     */
+    public CompletableFuture<Object> getObject(String key) {
+        byte[] bytesKey = RedisUtils.getBytesKey(key);
+        return submit(key, true, p -> p.get(bytesKey), RedisUtils::toObject);
+    }
+
+    /**
+     * 设置 String 类型的值
+     *
+     * @param key          键
+     * @param value        值
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 状态码
+     */
+    public CompletableFuture<String> set(String key, String value, int cacheSeconds) {
+        if (cacheSeconds != 0) {
+            return submit(key, false, p -> p.setex(key, (long) cacheSeconds, value), Function.identity());
+        }
+        return submit(key, false, p -> p.set(key, value), Function.identity());
+    }
+
+    /**
+     * 设置 object 类型的值
+     *
+     * @param key          键
+     * @param value        值
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 状态码
+     */
+    public CompletableFuture<String> setObject(String key, Object value, int cacheSeconds) {
+        byte[] bytesKey = RedisUtils.getBytesKey(key);
+        byte[] bytes = RedisUtils.toBytes(value);
+        if (cacheSeconds != 0) {
+            return submit(key, false, p -> p.setex(bytesKey, (long) cacheSeconds, bytes), Function.identity());
+        }
+        return submit(key, false, p -> p.set(bytesKey, bytes), Function.identity());
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 删除的数量
+     */
+    public CompletableFuture<Long> del(String key) {
+        return submit(key, false, p -> p.del(key), Function.identity());
+    }
+
+    /**
+     * 判断键是否存在
+     *
+     * @param key 键
+     * @return 是否存在
+     */
+    public CompletableFuture<Boolean> exists(String key) {
+        return submit(key, true, p -> p.exists(key), Function.identity());
+    }
+
+    /**
+     * 设置过期时间
+     *
+     * @param key          键
+     * @param cacheSeconds 超时时间（秒）
+     * @return 设置成功返回 1
+     */
+    public CompletableFuture<Long> expire(String key, int cacheSeconds) {
+        return submit(key, false, p -> p.expire(key, (long) cacheSeconds), Function.identity());
+    }
+
+    /**
+     * 获取 Map 中的一个字段
+     *
+     * @param key    键
+     * @param mapKey 字段
+     * @return 值，不存在时为 null
+     */
+    public CompletableFuture<String> hget(String key, String mapKey) {
+        return submit(key, true, p -> p.hget(key, mapKey), Function.identity());
+    }
+
+    /**
+     * 设置 Map 中的一个字段
+     *
+     * @param key    键
+     * @param mapKey 字段
+     * @param value  值
+     * @return 新建字段时返回 1，覆盖时返回 0
+     */
+    public CompletableFuture<Long> hset(String key, String mapKey, String value) {
+        return submit(key, false, p -> p.hset(key, mapKey, value), Function.identity());
+    }
+
+    /**
+     * 获取整个 Map
+     *
+     * @param key 键
+     * @return Map，不存在时为空 Map
+     */
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return submit(key, true, p -> p.hgetAll(key), Function.identity());
+    }
+
+    /**
+     * 删除 Map 中的字段
+     *
+     * @param key     键
+     * @param mapKeys 字段
+     * @return 删除的数量
+     */
+    public CompletableFuture<Long> hdel(String key, String... mapKeys) {
+        return submit(key, false, p -> p.hdel(key, mapKeys), Function.identity());
+    }
+
+    /**
+     * 向 List 头部添加值
+     *
+     * @param key    键
+     * @param values 值
+     * @return 添加后 List 的长度
+     */
+    public CompletableFuture<Long> lpush(String key, String... values) {
+        return submit(key, false, p -> p.lpush(key, values), Function.identity());
+    }
+
+    /**
+     * 向 List 尾部添加值
+     *
+     * @param key    键
+     * @param values 值
+     * @return 添加后 List 的长度
+     */
+    public CompletableFuture<Long> rpush(String key, String... values) {
+        return submit(key, false, p -> p.rpush(key, values), Function.identity());
+    }
+
+    /**
+     * 获取 List 中的一段
+     *
+     * @param key   键
+     * @param start 起始下标
+     * @param stop  结束下标，-1 表示到末尾
+     * @return 值列表
+     */
+    public CompletableFuture<List<String>> lrange(String key, long start, long stop) {
+        return submit(key, true, p -> p.lrange(key, start, stop), Function.identity());
+    }
+
+    /**
+     * 向 Set 中添加值
+     *
+     * @param key     键
+     * @param members 值
+     * @return 新添加的数量
+     */
+    public CompletableFuture<Long> sadd(String key, String... members) {
+        return submit(key, false, p -> p.sadd(key, members), Function.identity());
+    }
+
+    /**
+     * 获取 Set 中的全部值
+     *
+     * @param key 键
+     * @return 值集合
+     */
+    public CompletableFuture<Set<String>> smembers(String key) {
+        return submit(key, true, p -> p.smembers(key), Function.identity());
+    }
+
+    /**
+     * 判断值是否在 Set 中
+     *
+     * @param key    键
+     * @param member 值
+     * @return 是否存在
+     */
+    public CompletableFuture<Boolean> sismember(String key, String member) {
+        return submit(key, true, p -> p.sismember(key, member), Function.identity());
+    }
+
+    /**
+     * 等待所有 future 完成并按原顺序收集结果，任意一个失败时整体失败
+     *
+     * @param futures future 列表
+     * @param <T>     结果类型
+     * @return 结果列表
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * 提交一个操作
+     *
+     * @param key     键
+     * @param read    是否为读请求
+     * @param command 在 pipeline 上执行的命令
+     * @param mapper  对响应值的转换
+     * @param <T>     响应类型
+     * @param <R>     结果类型
+     * @return 结果
+     */
+    private <T, R> CompletableFuture<R> submit(String key, boolean read, Function<Pipeline, Response<T>> command,
+                                               Function<T, R> mapper) {
+        Op<T, R> op = new Op<>(key, read, command, mapper);
+        if (closed) {
+            op.future.completeExceptionally(new RejectedExecutionException("RedisAsync is closed"));
+            return op.future;
+        }
+        queue.add(op);
+        scheduleDrain();
+        return op.future;
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            // 正在执行的线程结束前会再次检查队列
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            failPending(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            List<Op<?, ?>> batch = new ArrayList<>();
+            while (true) {
+                Op<?, ?> op;
+                int batchSize = RedisUtils.getBatchSize();
+                while (batch.size() < batchSize && (op = queue.poll()) != null) {
+                    batch.add(op);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                executeGroups(groupByNode(batch));
+                batch.clear();
+            }
+        } finally {
+            draining.set(false);
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private static Map<MonitoredJedisPool, List<Op<?, ?>>> groupByNode(List<Op<?, ?>> batch) {
+        Map<MonitoredJedisPool, List<Op<?, ?>>> groups = new LinkedHashMap<>();
+        for (Op<?, ?> op : batch) {
+            MonitoredJedisPool pool;
+            try {
+                pool = RedisUtils.pool(op.key, op.read);
+            } catch (Exception e) {
+                op.future.completeExceptionally(e);
+                continue;
+            }
+            groups.computeIfAbsent(pool, k -> new ArrayList<>()).add(op);
+        }
+        return groups;
+    }
+
+    /**
+     * 发送一批命令，发往不同节点的 pipeline 最多 concurrency 个并行，全部完成后返回
+     *
+     * @param groups 按节点分组的命令
+     */
+    private void executeGroups(Map<MonitoredJedisPool, List<Op<?, ?>>> groups) {
+        List<Future<?>> futures = new ArrayList<>();
+        List<Map.Entry<MonitoredJedisPool, List<Op<?, ?>>>> local = new ArrayList<>();
+        for (Map.Entry<MonitoredJedisPool, List<Op<?, ?>>> group : groups.entrySet()) {
+            // 当前线程占用一个执行线程，其余的交给线程池
+            if (local.isEmpty() || futures.size() >= concurrency - 1) {
+                local.add(group);
+                continue;
+            }
+            try {
+                futures.add(executor.submit(() -> execute(group.getKey(), group.getValue())));
+            } catch (RejectedExecutionException e) {
+                local.add(group);
+            }
+        }
+        for (Map.Entry<MonitoredJedisPool, List<Op<?, ?>>> group : local) {
+            execute(group.getKey(), group.getValue());
+        }
+        // 中断时也要等本批全部完成，否则下一批可能越过本批
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    logger.error("async pipeline: ", e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(MonitoredJedisPool pool, List<Op<?, ?>> batch) {
+        Jedis jedis = null;
+        try {
+            jedis = pool.getResource("async");
+            Pipeline pipeline = jedis.pipelined();
+            for (Op<?, ?> op : batch) {
+                op.send(pipeline);
+            }
+            pipeline.sync();
+            for (Op<?, ?> op : batch) {
+                op.complete();
+            }
+        } catch (Exception e) {
+            logger.error("async pipeline of {} commands", batch.size(), e);
+            for (Op<?, ?> op : batch) {
+                op.future.completeExceptionally(e);
+            }
+        } finally {
+            RedisUtils.closeJedis(jedis);
+        }
+    }
+
+    private void failPending(Exception e) {
+        Op<?, ?> op;
+        while ((op = queue.poll()) != null) {
+            op.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 停止接受新请求，已提交的请求会继续执行完
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+    }
+
+    private static final class Op<T, R> {
+        private final String key;
+        private final boolean read;
+        private final Function<Pipeline, Response<T>> command;
+        private final Function<T, R> mapper;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private Response<T> response;
+
+        Op(String key, boolean read, Function<Pipeline, Response<T>> command, Function<T, R> mapper) {
+            this.key = key;
+            this.read = read;
+            this.command = command;
+            this.mapper = mapper;
+        }
+
+        void send(Pipeline pipeline) {
+            response = command.apply(pipeline);
+        }
+
+        void complete() {
+            try {
+                T value = response.get();
+                future.complete(value == null ? null : mapper.apply(value));
+            } catch (Exception e) {
+                // 单条命令出错只影响自己的 future
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Redis Cluster 槽位路由
+ * 通过 CLUSTER SLOTS 获取 16384 个槽位到主节点和副本的映射，按 CRC16(key) 直接找到负责的节点，不经过 MOVED 重定向；
+ * 拓扑按固定周期刷新，也可以在扩缩容后调用 {@link #refresh()} 立即刷新；命令收到 MOVED 时立即刷新并在新节点上重试，
+ * 收到 ASK 时在目标节点上重试，拓扑过期期间的命令不会丢失。
+ * 刷新后不再出现在拓扑中或角色变化的节点连接池在新的槽位表生效后延迟关闭，正在借用连接的线程不受影响。
+ * 副本连接池的连接会发送 READONLY，允许从副本读取时读请求在同一槽位的副本间分摊。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class RedisClusterRouter implements RedisRouter {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisClusterRouter.class);
+
+    private static final int SLOTS = 16384;
+    private static final long REFRESH_PERIOD_MS = 10000;
+    /**
+     * 替换下来的连接池延迟关闭的时间，让已经取得旧连接池的线程完成借用
+     */
+    private static final long CLOSE_DELAY_MS = 5000;
+    /**
+     * 收到 MOVED 时两次刷新之间的最小间隔，避免大量命令同时重定向时重复获取拓扑
+     */
+    private static final long MIN_REFRESH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Set<HostAndPort> seeds;
+    private final JedisClientConfig clientConfig;
+    private final BiFunction<HostAndPort, Boolean, MonitoredJedisPool> poolFactory;
+    private final ConcurrentMap<String, MonitoredJedisPool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+
+    private volatile RedisNodeGroup[] slots;
+    private volatile List<RedisNodeGroup> groups;
+    private long lastRefreshNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param seeds        任意几个集群节点
+     * @param clientConfig 获取拓扑时使用的连接配置
+     * @param poolFactory  按节点地址和是否只读创建连接池
+     */
+    RedisClusterRouter(Set<HostAndPort> seeds, JedisClientConfig clientConfig,
+                       BiFunction<HostAndPort, Boolean, MonitoredJedisPool> poolFactory) {
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("at least one seed node is required");
+        }
+        this.seeds = new LinkedHashSet<>(seeds);
+        this.clientConfig = clientConfig;
+        this.poolFactory = poolFactory;
+        refresher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-cluster-refresh"));
+        refresh();
+        if (slots == null) {
+            refresher.shutdownNow();
+            throw new IllegalStateException("could not load cluster slots from " + seeds);
+        }
+        refresher.scheduleWithFixedDelay(this::refresh, REFRESH_PERIOD_MS, REFRESH_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public MonitoredJedisPool pool(String key, boolean fromReplica) {
+        RedisNodeGroup group = slots[JedisClusterCRC16.getSlot(key)];
+        if (group == null) {
+            throw new IllegalStateException("slot of key " + key + " is not covered");
+        }
+        return group.pool(fromReplica);
+    }
+
+    @Override
+    public Collection<MonitoredJedisPool> masters() {
+        List<MonitoredJedisPool> masters = new ArrayList<>();
+        for (RedisNodeGroup group : groups) {
+            masters.add(group.master);
+        }
+        return masters;
+    }
+
+    @Override
+    public Map<String, MonitoredJedisPool> pools() {
+        return pools;
+    }
+
+    @Override
+    public synchronized void refresh() {
+        lastRefreshNanos = System.nanoTime();
+        Set<HostAndPort> candidates = new LinkedHashSet<>();
+        for (String address : pools.keySet()) {
+            candidates.add(HostAndPort.from(address));
+        }
+        candidates.addAll(seeds);
+        for (HostAndPort node : candidates) {
+            Jedis jedis = null;
+            try {
+                jedis = new Jedis(node, clientConfig);
+                apply(node, jedis.clusterSlots());
+                return;
+            } catch (Exception e) {
+                logger.warn("cluster slots from {}", node, e);
+            } finally {
+                RedisUtils.closeJedis(jedis);
+            }
+        }
+        logger.error("could not refresh cluster slots from {}", candidates);
+    }
+
+    @Override
+    public synchronized MonitoredJedisPool redirect(String key, HostAndPort target, boolean moved) {
+        if (moved && System.nanoTime() - lastRefreshNanos > MIN_REFRESH_INTERVAL_NANOS) {
+            refresh();
+        }
+        MonitoredJedisPool pool = pools.get(target.toString());
+        if (pool != null && !pool.isReadOnly()) {
+            return pool;
+        }
+        if (moved) {
+            // 刷新所用的节点还不知道新的归属时，以刷新后的槽位表为准
+            return pool(key, false);
+        }
+        if (pool != null) {
+            // ASK 指向一个已知的副本，说明拓扑已经过期
+            return null;
+        }
+        pool = poolFactory.apply(target, false);
+        pools.put(target.toString(), pool);
+        logger.info("cluster node {} added as master", target);
+        return pool;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(HostAndPort source, List<Object> slotInfo) {
+        RedisNodeGroup[] newSlots = new RedisNodeGroup[SLOTS];
+        Map<String, RedisNodeGroup> newGroups = new LinkedHashMap<>();
+        Set<String> live = new LinkedHashSet<>();
+        List<MonitoredJedisPool> retired = new ArrayList<>();
+        for (Object o : slotInfo) {
+            List<Object> range = (List<Object>) o;
+            int start = ((Long) range.get(0)).intValue();
+            int end = ((Long) range.get(1)).intValue();
+            HostAndPort master = toNode(source, (List<Object>) range.get(2));
+            RedisNodeGroup group = newGroups.get(master.toString());
+            if (group == null) {
+                List<MonitoredJedisPool> replicas = new ArrayList<>();
+                for (int i = 3; i < range.size(); i++) {
+                    HostAndPort replica = toNode(source, (List<Object>) range.get(i));
+                    replicas.add(pool(replica, true, retired));
+                    live.add(replica.toString());
+                }
+                group = new RedisNodeGroup(pool(master, false, retired), replicas);
+                newGroups.put(master.toString(), group);
+                live.add(master.toString());
+            }
+            for (int slot = start; slot <= end; slot++) {
+                newSlots[slot] = group;
+            }
+        }
+        groups = new ArrayList<>(newGroups.values());
+        slots = newSlots;
+
+        Map<String, MonitoredJedisPool> removed = new HashMap<>(pools);
+        removed.keySet().removeAll(live);
+        for (Map.Entry<String, MonitoredJedisPool> e : removed.entrySet()) {
+            pools.remove(e.getKey());
+            retired.add(e.getValue());
+            logger.info("cluster node {} removed", e.getKey());
+        }
+        // 新的槽位表已经生效，此后不会再有线程取得这些连接池
+        for (MonitoredJedisPool pool : retired) {
+            refresher.schedule(pool::close, CLOSE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 节点角色发生变化（主从切换）时需要换成对应读写模式的连接池，因此按地址和角色区分
+     */
+    private MonitoredJedisPool pool(HostAndPort node, boolean readOnly, List<MonitoredJedisPool> retired) {
+        String address = node.toString();
+        MonitoredJedisPool pool = pools.get(address);
+        if (pool != null && pool.isReadOnly() == readOnly) {
+            return pool;
+        }
+        MonitoredJedisPool created = poolFactory.apply(node, readOnly);
+        MonitoredJedisPool previous = pools.put(address, created);
+        if (previous != null) {
+            // 旧的槽位表仍可能把它交给其他线程，等新的槽位表生效后再关闭
+            retired.add(previous);
+        }
+        logger.info("cluster node {} added as {}", address, readOnly ? "replica" : "master");
+        return created;
+    }
+
+    private static HostAndPort toNode(HostAndPort source, List<Object> node) {
+        String host = SafeEncoder.encode((byte[]) node.get(0));
+        int port = ((Long) node.get(1)).intValue();
+        // 节点未配置 announce 地址时返回空字符串，表示与当前连接的地址相同
+        return new HostAndPort(host.isEmpty() ? source.getHost() : host, port);
+    }
+
+    @Override
+    public void close() {
+        // 立即执行尚未到期的延迟关闭
+        for (Runnable task : refresher.shutdownNow()) {
+            task.run();
+        }
+        for (MonitoredJedisPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+    }
+}
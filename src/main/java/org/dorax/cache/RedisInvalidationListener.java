@@ -0,0 +1,287 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 基于 Redis 键空间通知的本地缓存失效监听器
+ * 通过一条独立的连接订阅 __keyspace@db__:prefix* ，其他节点修改、删除、过期键时收到通知，
+ * 通知只写入去重集合，由后台线程按批次或定时回放到本地缓存，突发写入不会阻塞读线程。
+ * 连接断开期间可能丢失通知，因此每次（重新）订阅成功后都会清空整个本地缓存。
+ * 服务端需要开启 notify-keyspace-events（至少包含 K 和 A），也可以通过 {@link #setConfigureServer(boolean)} 由监听器设置。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisInvalidationListener implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisInvalidationListener.class);
+
+    private static final long MAX_RECONNECT_DELAY_MS = 5000;
+
+    private final Supplier<Jedis> connectionFactory;
+    private final String channelPrefix;
+    private final String pattern;
+    private final Consumer<Collection<String>> invalidator;
+    private final Runnable invalidateAll;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private int batchSize = 256;
+    private long flushIntervalMs = 10;
+    private boolean configureServer;
+
+    private volatile boolean running;
+    private volatile JedisPubSub pubSub;
+    /**
+     * 订阅线程当前使用的连接，关闭时断开它，使阻塞在 psubscribe 中（或即将进入）的订阅线程退出
+     */
+    private volatile Jedis connection;
+    private ScheduledExecutorService flusher;
+    private Thread subscriber;
+
+    /**
+     * 监听数据库 0 中的所有键，并失效 {@link RedisNearCache} 中对应的条目
+     *
+     * @param host      地址
+     * @param port      端口
+     * @param password  密码，为空时不认证
+     * @param nearCache 本地缓存
+     */
+    public RedisInvalidationListener(String host, int port, String password, RedisNearCache nearCache) {
+        this(() -> {
+            Jedis jedis = new Jedis(host, port, RedisUtils.timeout, 0);
+            if (password != null && !password.isEmpty()) {
+                jedis.auth(password);
+            }
+            return jedis;
+        }, 0, "", nearCache::invalidateAll, nearCache::invalidateAll);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param connectionFactory 创建订阅连接的工厂，每次重连调用一次，可以指向测试用的替身服务
+     * @param database          监听的数据库
+     * @param keyPrefix         只监听以此为前缀的键，空字符串表示全部
+     * @param invalidator       批量失效本地条目
+     * @param invalidateAll     清空本地缓存
+     */
+    public RedisInvalidationListener(Supplier<Jedis> connectionFactory, int database, String keyPrefix,
+                                     Consumer<Collection<String>> invalidator, Runnable invalidateAll) {
+        this.connectionFactory = connectionFactory;
+        this.channelPrefix = "__keyspace@" + database + "__:";
+        this.pattern = channelPrefix + (keyPrefix == null ? "" : keyPrefix) + "*";
+        this.invalidator = invalidator;
+        this.invalidateAll = invalidateAll;
+    }
+
+    /**
+     * 启动订阅线程和回放线程
+     *
+     * @return this
+     */
+    public synchronized RedisInvalidationListener start() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-invalidation-flush"));
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        subscriber = new NamedThreadFactory("redis-invalidation").newThread(this::subscribeLoop);
+        subscriber.start();
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) {
+            try {
+                current.punsubscribe();
+            } catch (Exception e) {
+                logger.warn("punsubscribe: ", e);
+            }
+        }
+        // 订阅线程可能还没有进入 psubscribe，punsubscribe 对它无效，直接断开连接
+        disconnect(connection);
+        if (subscriber != null) {
+            subscriber.interrupt();
+            subscriber = null;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        flush();
+    }
+
+    /**
+     * 记录一个被修改的键，等待批量失效
+     *
+     * @param key 键
+     */
+    public void onKeyChanged(String key) {
+        if (pending.add(key) && pending.size() >= batchSize
+                && flushScheduled.compareAndSet(false, true)) {
+            ScheduledExecutorService current = flusher;
+            if (current != null) {
+                current.execute(this::flush);
+            } else {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * 立即把已记录的键回放到本地缓存
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        while (!pending.isEmpty()) {
+            List<String> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            Iterator<String> it = pending.iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                batch.add(it.next());
+                it.remove();
+            }
+            try {
+                invalidator.accept(batch);
+            } catch (Exception e) {
+                logger.error("invalidate {} keys", batch.size(), e);
+            }
+        }
+    }
+
+    private void subscribeLoop() {
+        long delay = 100;
+        while (running) {
+            Jedis jedis = null;
+            try {
+                jedis = connectionFactory.get();
+                connection = jedis;
+                if (!running) {
+                    // close() 在连接建立之前执行，没有看到这条连接
+                    break;
+                }
+                if (configureServer) {
+                    jedis.configSet("notify-keyspace-events", "KA");
+                }
+                JedisPubSub listener = new KeyspaceListener();
+                pubSub = listener;
+                delay = 100;
+                // 阻塞直到取消订阅或连接断开
+                jedis.psubscribe(listener, pattern);
+            } catch (Exception e) {
+                if (running) {
+                    logger.warn("keyspace subscription {} lost, retry in {} ms", pattern, delay, e);
+                }
+            } finally {
+                connection = null;
+                if (running) {
+                    RedisUtils.destroyJedis(jedis);
+                } else {
+                    // close() 可能已经断开了连接，QUIT 会重新建立连接
+                    disconnect(jedis);
+                }
+            }
+            if (running) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    private static void disconnect(Jedis jedis) {
+        if (jedis != null) {
+            try {
+                jedis.disconnect();
+            } catch (Exception e) {
+                logger.warn("disconnect: ", e);
+            }
+        }
+    }
+
+    private class KeyspaceListener extends JedisPubSub {
+
+        @Override
+        public void onPSubscribe(String pattern, int subscribedChannels) {
+            if (!running) {
+                // 订阅完成前已经关闭
+                punsubscribe();
+                return;
+            }
+            // 断线期间的通知已经丢失，只能整体失效
+            pending.clear();
+            try {
+                invalidateAll.run();
+            } catch (Exception e) {
+                logger.error("invalidateAll: ", e);
+            }
+            logger.info("subscribed to {}", pattern);
+        }
+
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+            if (channel.startsWith(channelPrefix)) {
+                onKeyChanged(channel.substring(channelPrefix.length()));
+            }
+        }
+    }
+
+    /**
+     * 设置每批失效的最大键数，积累到该数量时立即回放，默认 256
+     *
+     * @param batchSize 批大小
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 设置定时回放的间隔，需在 {@link #start()} 之前调用，默认 10 毫秒
+     *
+     * @param flushIntervalMs 回放间隔（毫秒）
+     */
+    public void setFlushInterval(long flushIntervalMs) {
+        if (flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("flushIntervalMs must be greater than 0");
+        }
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * 订阅前是否通过 CONFIG SET 开启键空间通知，默认关闭
+     *
+     * @param configureServer 是否设置服务端
+     */
+    public void setConfigureServer(boolean configureServer) {
+        this.configureServer = configureServer;
+    }
+}
@@ -0,0 +1,375 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.dorax.idx.IdGenerate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 基于 Redis 的可重入分布式锁
+ * 加锁使用 SET NX PX，同时递增一个永不过期的计数器作为围栏令牌（fencing token），令牌随每次加锁单调递增，
+ * 下游存储可以拒绝携带旧令牌的写入，避免持有者因停顿导致租期过期后仍然写入；解锁通过 Lua 脚本比较持有者后再删除，
+ * 不会误删其他节点的锁。持有期间由后台线程每隔三分之一租期续期，续期发现锁已不属于自己时记录错误并标记为丢失。
+ * 同一个实例在进程内先通过本地的 {@link ReentrantLock} 排队，只有排在最前面的线程访问 Redis，重入也不访问 Redis，
+ * 因此大量线程竞争同一把锁时对 Redis 的压力与线程数无关，同一进程内同名的锁应共享一个实例。
+ * 等待时默认按指数退避并参考锁的剩余时间重试；调用 {@link #enableWakeup(String, int, String)} 后改为订阅释放消息，
+ * 锁释放时立即唤醒等待方，不再轮询。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisLock implements Lock {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisLock.class);
+
+    /**
+     * KEYS[1] 锁，KEYS[2] 围栏计数；ARGV[1] 持有者，ARGV[2] 租期（毫秒）。
+     * 加锁成功返回新的令牌；锁已属于该持有者（上次加锁的响应丢失）时续期并返回当前令牌；否则返回锁剩余时间的相反数。
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return redis.call('INCR', KEYS[2]) end "
+                    + "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) return tonumber(redis.call('GET', KEYS[2])) end "
+                    + "local ttl = redis.call('PTTL', KEYS[1]) "
+                    + "if ttl < 1 then ttl = 1 end "
+                    + "return -ttl";
+
+    /**
+     * KEYS[1] 锁；ARGV[1] 持有者，ARGV[2] 释放消息的频道。持有者一致时删除并发布释放消息，返回 1，否则返回 0。
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('DEL', KEYS[1]) redis.call('PUBLISH', ARGV[2], '1') return 1 end "
+                    + "return 0";
+
+    /**
+     * KEYS[1] 锁；ARGV[1] 持有者，ARGV[2] 租期（毫秒）。持有者一致时续期返回 1，否则返回 0。
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                    + "return 0";
+
+    private static final long DEFAULT_LEASE_MILLIS = 30000;
+    private static final long MIN_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 100;
+    /**
+     * 订阅模式下单次等待的上限，订阅连接断开期间错过释放消息时最多延迟这么久
+     */
+    private static final long MAX_WAKEUP_WAIT_MILLIS = 1000;
+
+    private static final String INSTANCE_ID = IdGenerate.uuid();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final ScheduledExecutorService WATCHDOG =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-lock-watchdog"));
+
+    private final String key;
+    private final List<String> keys;
+    private final String channel;
+    private final long leaseMillis;
+    private final ReentrantLock local = new ReentrantLock();
+
+    private volatile String owner;
+    private volatile long fencingToken;
+    private volatile boolean lost;
+    private volatile ScheduledFuture<?> renewal;
+
+    /**
+     * 构造函数，租期 30 秒
+     *
+     * @param name 锁名称，相同名称的实例互斥
+     */
+    public RedisLock(String name) {
+        this(name, DEFAULT_LEASE_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param name        锁名称，相同名称的实例互斥
+     * @param leaseMillis 租期（毫秒），持有者失联后最多经过这么久锁自动释放
+     */
+    public RedisLock(String name, long leaseMillis) {
+        if (leaseMillis < 30) {
+            throw new IllegalArgumentException("leaseMillis must be at least 30");
+        }
+        // 哈希标签保证锁和围栏计数落在同一个分片
+        this.key = "lock:{" + name + "}";
+        this.keys = Arrays.asList(key, key + ":fence");
+        this.channel = RedisLockWakeup.CHANNEL_PREFIX + name;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * 开启释放消息订阅，等待中的锁在释放时立即被唤醒，进程内只需调用一次
+     *
+     * @param host     地址
+     * @param port     端口
+     * @param password 密码，为空时不认证
+     */
+    public static void enableWakeup(String host, int port, String password) {
+        enableWakeup(() -> {
+            Jedis jedis = new Jedis(host, port, RedisUtils.timeout, 0);
+            if (password != null && !password.isEmpty()) {
+                jedis.auth(password);
+            }
+            return jedis;
+        });
+    }
+
+    /**
+     * 开启释放消息订阅，进程内只需调用一次
+     *
+     * @param connectionFactory 创建订阅连接的工厂，每次重连调用一次；集群模式下任意节点都能收到发布的消息
+     */
+    public static void enableWakeup(Supplier<Jedis> connectionFactory) {
+        RedisLockWakeup.start(connectionFactory);
+    }
+
+    @Override
+    public void lock() {
+        try {
+            acquire(-1, false);
+        } catch (InterruptedException e) {
+            // 不可中断模式下不会抛出
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(-1, true);
+    }
+
+    /**
+     * 尝试加锁，锁被其他持有者占用时立即返回，不等待
+     *
+     * @return 是否加锁成功
+     */
+    @Override
+    public boolean tryLock() {
+        if (!local.tryLock()) {
+            return false;
+        }
+        if (local.getHoldCount() > 1) {
+            return true;
+        }
+        String candidate = nextOwner();
+        if (attempt(candidate) > 0) {
+            return true;
+        }
+        local.unlock();
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return acquire(Math.max(0, unit.toNanos(time)), true);
+    }
+
+    /**
+     * 解锁，最后一次重入解锁时释放 Redis 中的锁
+     *
+     * @throws IllegalMonitorStateException 当前线程未持有锁
+     */
+    @Override
+    public void unlock() {
+        if (!local.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("current thread does not hold lock " + key);
+        }
+        try {
+            if (local.getHoldCount() == 1) {
+                release();
+            }
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /**
+     * 不支持条件变量
+     *
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("RedisLock does not support conditions");
+    }
+
+    /**
+     * 当前持有的围栏令牌，写入下游存储时一并提交，由下游拒绝比已见过的令牌更小的写入
+     *
+     * @return 令牌
+     * @throws IllegalMonitorStateException 当前线程未持有锁
+     */
+    public long getFencingToken() {
+        if (!local.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("current thread does not hold lock " + key);
+        }
+        return fencingToken;
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentThread() {
+        return local.isHeldByCurrentThread();
+    }
+
+    /**
+     * 持有期间续期时是否发现锁已被释放或被其他持有者取得，为 true 时应停止依赖该锁的操作
+     *
+     * @return 是否已丢失
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * 加锁
+     *
+     * @param timeoutNanos  等待时间（纳秒），-1 表示一直等待
+     * @param interruptible 是否响应中断
+     * @return 是否加锁成功
+     * @throws InterruptedException 等待期间被中断
+     */
+    private boolean acquire(long timeoutNanos, boolean interruptible) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        if (timeoutNanos < 0) {
+            if (interruptible) {
+                local.lockInterruptibly();
+            } else {
+                local.lock();
+            }
+        } else if (!local.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        if (local.getHoldCount() > 1) {
+            return true;
+        }
+        boolean acquired = false;
+        boolean interrupted = false;
+        Semaphore signal = null;
+        if (RedisLockWakeup.isStarted()) {
+            // 先注册再尝试，尝试与等待之间发布的释放消息不会丢失
+            signal = new Semaphore(0);
+            RedisLockWakeup.register(channel, signal);
+        }
+        try {
+            String candidate = nextOwner();
+            long backoff = MIN_BACKOFF_MILLIS;
+            while (true) {
+                long result = attempt(candidate);
+                if (result > 0) {
+                    acquired = true;
+                    return true;
+                }
+                long remaining = timeoutNanos < 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long ttl = result < 0 ? -result : backoff;
+                long wait = signal != null ? Math.min(ttl, MAX_WAKEUP_WAIT_MILLIS)
+                        : Math.min(ttl, backoff + ThreadLocalRandom.current().nextLong(backoff));
+                wait = Math.min(TimeUnit.MILLISECONDS.toNanos(wait), remaining);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                try {
+                    if (signal != null) {
+                        signal.tryAcquire(wait, TimeUnit.NANOSECONDS);
+                        signal.drainPermits();
+                    } else {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        throw e;
+                    }
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (signal != null) {
+                RedisLockWakeup.unregister(channel, signal);
+            }
+            if (!acquired) {
+                local.unlock();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String nextOwner() {
+        return INSTANCE_ID + ":" + SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * 执行一次加锁脚本，成功时启动续期
+     *
+     * @param candidate 持有者
+     * @return 成功时为令牌，被占用时为剩余时间的相反数，Redis 不可用时为 0
+     */
+    private long attempt(String candidate) {
+        Object result = RedisUtils.eval(ACQUIRE_SCRIPT, keys, Arrays.asList(candidate, String.valueOf(leaseMillis)));
+        if (!(result instanceof Long)) {
+            return 0;
+        }
+        long value = (Long) result;
+        if (value > 0) {
+            owner = candidate;
+            fencingToken = value;
+            lost = false;
+            long period = leaseMillis / 3;
+            renewal = WATCHDOG.scheduleAtFixedRate(() -> renew(candidate), period, period, TimeUnit.MILLISECONDS);
+        }
+        return value;
+    }
+
+    private void renew(String candidate) {
+        Object result = RedisUtils.eval(RENEW_SCRIPT, key, candidate, String.valueOf(leaseMillis));
+        if (result == null) {
+            // Redis 暂时不可用，租期内还有机会续期
+            logger.warn("renew lock {} failed, will retry", key);
+            return;
+        }
+        if (Long.valueOf(0).equals(result) && candidate.equals(owner)) {
+            lost = true;
+            logger.error("lock {} was lost before unlock, lease {} ms may be too short", key, leaseMillis);
+            ScheduledFuture<?> current = renewal;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+
+    private void release() {
+        ScheduledFuture<?> current = renewal;
+        if (current != null) {
+            current.cancel(false);
+            renewal = null;
+        }
+        String candidate = owner;
+        owner = null;
+        Object result = RedisUtils.eval(RELEASE_SCRIPT, key, candidate, channel);
+        if (!Long.valueOf(1).equals(result)) {
+            logger.warn("lock {} was not held by {} at unlock", key, candidate);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * {@link RedisLock} 的释放通知
+ * 进程内只用一条连接订阅所有锁的释放频道，收到某个锁的释放消息后唤醒本进程中等待该锁的线程，
+ * 等待方不再需要轮询；连接断开时等待方会退回到按锁剩余时间等待，不会永久阻塞。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class RedisLockWakeup {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisLockWakeup.class);
+
+    static final String CHANNEL_PREFIX = "lock:released:";
+
+    private static final long MAX_RECONNECT_DELAY_MS = 5000;
+
+    private static final ConcurrentMap<String, Set<Semaphore>> WAITERS = new ConcurrentHashMap<>();
+    private static volatile boolean started;
+
+    private RedisLockWakeup() {
+    }
+
+    static boolean isStarted() {
+        return started;
+    }
+
+    static synchronized void start(Supplier<Jedis> connectionFactory) {
+        if (started) {
+            return;
+        }
+        started = true;
+        new NamedThreadFactory("redis-lock-wakeup").newThread(() -> subscribeLoop(connectionFactory)).start();
+    }
+
+    static void register(String channel, Semaphore signal) {
+        WAITERS.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(signal);
+    }
+
+    static void unregister(String channel, Semaphore signal) {
+        WAITERS.computeIfPresent(channel, (k, set) -> {
+            set.remove(signal);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static void subscribeLoop(Supplier<Jedis> connectionFactory) {
+        long delay = 100;
+        while (true) {
+            Jedis jedis = null;
+            try {
+                jedis = connectionFactory.get();
+                delay = 100;
+                // 阻塞直到连接断开
+                jedis.psubscribe(new JedisPubSub() {
+                    @Override
+                    public void onPMessage(String pattern, String channel, String message) {
+                        Set<Semaphore> signals = WAITERS.get(channel);
+                        if (signals != null) {
+                            for (Semaphore signal : signals) {
+                                signal.release();
+                            }
+                        }
+                    }
+                }, CHANNEL_PREFIX + "*");
+            } catch (Exception e) {
+                logger.warn("lock wakeup subscription lost, retry in {} ms", delay, e);
+            } finally {
+                RedisUtils.destroyJedis(jedis);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+        }
+    }
+}
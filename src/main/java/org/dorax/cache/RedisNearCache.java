@@ -0,0 +1,168 @@
+package org.dorax.cache;
+
+import java.util.Collection;
+
+/**
+ * Redis 二级缓存
+ * 读请求先查进程内的有界 {@link SimpleCache}，未命中再回源 {@link RedisUtils}，同一个键的并发回源只执行一次。
+ * 本地条目的存活时间取调用方指定的TTL与最大陈旧时间中较小者，因此本地读到的值最多落后 Redis 最大陈旧时间；
+ * 通过本类写入或删除时会同时失效本地条目，其他节点的写入需要配合 {@link RedisInvalidationListener} 才能更早感知。
+ * String 与 object 两种读取方式的编码不同，分别保存在两个本地缓存中，同一个键按两种方式读取不会互相覆盖，失效时两者一起失效。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisNearCache {
+
+    private final SimpleCache<String> strings;
+    private final SimpleCache<Object> objects;
+    private final long defaultTtlMs;
+    private final long maxStalenessMs;
+
+    /**
+     * 构造函数
+     *
+     * @param maximumSize    String 与 object 本地缓存各自的最大条目数
+     * @param defaultTtlMs   本地条目默认的存活时间（毫秒）
+     * @param maxStalenessMs 本地条目允许的最大陈旧时间（毫秒）
+     */
+    public RedisNearCache(long maximumSize, long defaultTtlMs, long maxStalenessMs) {
+        if (defaultTtlMs <= 0 || maxStalenessMs <= 0) {
+            throw new IllegalArgumentException("ttl and staleness must be greater than 0");
+        }
+        this.strings = new SimpleCache<>(maximumSize);
+        this.objects = new SimpleCache<>(maximumSize);
+        this.defaultTtlMs = defaultTtlMs;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    /**
+     * 根据 key 获取 String 类型的值
+     *
+     * @param key 键
+     * @return String 类型的值
+     */
+    public String get(String key) {
+        return get(key, defaultTtlMs);
+    }
+
+    /**
+     * 根据 key 获取 String 类型的值，并指定本地存活时间
+     *
+     * @param key   键
+     * @param ttlMs 本地存活时间（毫秒），超过最大陈旧时间时按最大陈旧时间计算
+     * @return String 类型的值
+     */
+    public String get(String key, long ttlMs) {
+        return strings.get(key, localTtl(ttlMs), RedisUtils::get);
+    }
+
+    /**
+     * 根据 key 获取 object 类型的值
+     *
+     * @param key 键
+     * @return Object 类型的值
+     */
+    public Object getObject(String key) {
+        return getObject(key, defaultTtlMs);
+    }
+
+    /**
+     * 根据 key 获取 object 类型的值，并指定本地存活时间
+     *
+     * @param key   键
+     * @param ttlMs 本地存活时间（毫秒），超过最大陈旧时间时按最大陈旧时间计算
+     * @return Object 类型的值
+     */
+    public Object getObject(String key, long ttlMs) {
+        return objects.get(key, localTtl(ttlMs), RedisUtils::getObject);
+    }
+
+    /**
+     * 写入 Redis 并失效本地条目
+     *
+     * @param key          键
+     * @param value        值
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 状态码
+     */
+    public String set(String key, String value, int cacheSeconds) {
+        try {
+            return RedisUtils.set(key, value, cacheSeconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 写入 Redis 并失效本地条目
+     *
+     * @param key          键
+     * @param value        值
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 状态码
+     */
+    public String setObject(String key, Object value, int cacheSeconds) {
+        try {
+            return RedisUtils.setObject(key, value, cacheSeconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 删除 Redis 中的值并失效本地条目
+     *
+     * @param key 键
+     * @return 如果删除成功则返回删除的数量
+     */
+    public long del(String key) {
+        try {
+            return RedisUtils.del(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 只失效本地条目
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        strings.remove(key);
+        objects.remove(key);
+    }
+
+    /**
+     * 批量失效本地条目
+     *
+     * @param keys 键
+     */
+    public void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 清空本地缓存
+     */
+    public void invalidateAll() {
+        strings.clear();
+        objects.clear();
+    }
+
+    /**
+     * 本地条目数，String 与 object 两个本地缓存之和
+     *
+     * @return 条目数
+     */
+    public int localSize() {
+        return strings.size() + objects.size();
+    }
+
+    private long localTtl(long ttlMs) {
+        return Math.min(ttlMs, maxStalenessMs);
+    }
+}
@@ -0,0 +1,37 @@
+package org.dorax.cache;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一个主节点及其副本的连接池
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class RedisNodeGroup {
+
+    final MonitoredJedisPool master;
+    final MonitoredJedisPool[] replicas;
+
+    RedisNodeGroup(MonitoredJedisPool master, List<MonitoredJedisPool> replicas) {
+        this.master = master;
+        this.replicas = replicas.toArray(new MonitoredJedisPool[0]);
+    }
+
+    /**
+     * 选择连接池，允许从副本读取时在副本间随机分摊
+     *
+     * @param fromReplica 是否允许从副本读取
+     * @return 连接池
+     */
+    MonitoredJedisPool pool(boolean fromReplica) {
+        if (!fromReplica || replicas.length == 0) {
+            return master;
+        }
+        if (replicas.length == 1) {
+            return replicas[0];
+        }
+        return replicas[ThreadLocalRandom.current().nextInt(replicas.length)];
+    }
+}
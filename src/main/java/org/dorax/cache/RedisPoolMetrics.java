@@ -0,0 +1,164 @@
+package org.dorax.cache;
+
+import redis.clients.jedis.util.Pool;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis 连接池指标
+ * 包括借用连接的等待耗时、池耗尽与借用失败次数、活跃/空闲/等待中的连接数，以及按命令统计的连接占用耗时。
+ * 命令耗时从借到连接开始计算到归还为止，包含序列化和网络往返，只统计由 {@link RedisUtils} 内部方法借出的连接。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisPoolMetrics {
+
+    private final Pool<?> pool;
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, LatencyHistogram> commandLatency = new ConcurrentHashMap<>();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder borrowFailures = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    RedisPoolMetrics(Pool<?> pool) {
+        this.pool = pool;
+    }
+
+    void recordBorrow(long nanos) {
+        borrowLatency.record(nanos);
+        int current = inFlight.incrementAndGet();
+        int peak;
+        while (current > (peak = peakInFlight.get())) {
+            if (peakInFlight.compareAndSet(peak, current)) {
+                break;
+            }
+        }
+    }
+
+    void recordReturn() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordExhausted(long nanos) {
+        borrowLatency.record(nanos);
+        exhausted.increment();
+    }
+
+    void recordBorrowFailure() {
+        borrowFailures.increment();
+    }
+
+    void recordCommand(String command, long nanos) {
+        LatencyHistogram histogram = commandLatency.get(command);
+        if (histogram == null) {
+            histogram = commandLatency.computeIfAbsent(command, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * 返回自上次调用以来借出连接数的峰值，并以当前借出数开始新的统计窗口
+     *
+     * @return 峰值
+     */
+    int drainPeakInFlight() {
+        return peakInFlight.getAndSet(inFlight.get());
+    }
+
+    /**
+     * 借用连接的等待耗时
+     *
+     * @return 直方图
+     */
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    /**
+     * 指定命令的连接占用耗时
+     *
+     * @param command 命令，即 {@link RedisUtils} 中的方法名
+     * @return 直方图，没有样本时为 null
+     */
+    public LatencyHistogram getCommandLatency(String command) {
+        return commandLatency.get(command);
+    }
+
+    /**
+     * 所有命令的连接占用耗时
+     *
+     * @return 命令到直方图的只读视图
+     */
+    public Map<String, LatencyHistogram> getCommandLatencies() {
+        return Collections.unmodifiableMap(commandLatency);
+    }
+
+    /**
+     * 等待超时仍借不到连接的次数
+     *
+     * @return 次数
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * 因连接失败等其他原因借用失败的次数
+     *
+     * @return 次数
+     */
+    public long getBorrowFailureCount() {
+        return borrowFailures.sum();
+    }
+
+    /**
+     * 已借出的连接数
+     *
+     * @return 连接数
+     */
+    public int getNumActive() {
+        return pool.getNumActive();
+    }
+
+    /**
+     * 池中空闲的连接数
+     *
+     * @return 连接数
+     */
+    public int getNumIdle() {
+        return pool.getNumIdle();
+    }
+
+    /**
+     * 正在等待连接的线程数
+     *
+     * @return 线程数
+     */
+    public int getNumWaiters() {
+        return pool.getNumWaiters();
+    }
+
+    /**
+     * 清空耗时统计和计数器，连接数不受影响
+     */
+    public void reset() {
+        borrowLatency.reset();
+        commandLatency.clear();
+        exhausted.reset();
+        borrowFailures.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getNumActive() + ", idle=" + getNumIdle() + ", waiters=" + getNumWaiters()
+                + ", exhausted=" + getExhaustedCount() + ", failures=" + getBorrowFailureCount()
+                + ", borrow={" + borrowLatency + "}";
+    }
+}
@@ -0,0 +1,157 @@
+package org.dorax.cache;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 根据实际并发需求调整 Redis 连接池空闲连接数的控制器
+ * 每个周期取借出连接数的峰值加上等待线程数作为需求，需求上升时立即跟上，下降时按指数平滑缓慢回落，
+ * 出现池耗尽时把空闲上限翻倍；最大空闲数为平滑需求乘以余量系数，最小空闲数为平滑需求本身，
+ * 多余的空闲连接在归还或空闲检测时关闭，不足的在每个周期预先建立。
+ * 最大连接数保持不变，控制器只避免长期持有大量无用的空闲连接以及突发时频繁新建连接。
+ * 多节点时每个连接池独立调整，集群拓扑变化后新增的连接池在下一个周期纳入。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisPoolSizer implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisPoolSizer.class);
+
+    private final Supplier<Collection<MonitoredJedisPool>> pools;
+    private final Map<MonitoredJedisPool, State> states = new IdentityHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final long periodMs;
+
+    private int floor = 8;
+    private double headroom = 1.5;
+    private double decay = 0.9;
+
+    RedisPoolSizer(Supplier<Collection<MonitoredJedisPool>> pools, long periodMs) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("periodMs must be greater than 0");
+        }
+        this.pools = pools;
+        this.periodMs = periodMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-pool-sizer"));
+    }
+
+    RedisPoolSizer start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                resize();
+            } catch (Exception e) {
+                logger.error("resize: ", e);
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * 执行一次调整，正常情况下由后台线程按周期调用
+     */
+    public synchronized void resize() {
+        Collection<MonitoredJedisPool> current = pools.get();
+        states.keySet().retainAll(current);
+        for (MonitoredJedisPool pool : current) {
+            State state = states.get(pool);
+            if (state == null) {
+                state = new State(pool);
+                states.put(pool, state);
+            }
+            resize(pool, state);
+        }
+    }
+
+    private void resize(MonitoredJedisPool pool, State state) {
+        RedisPoolMetrics metrics = pool.getMetrics();
+        int observed = metrics.drainPeakInFlight() + metrics.getNumWaiters();
+        if (observed >= state.demand) {
+            state.demand = observed;
+        } else {
+            state.demand = state.demand * decay + observed * (1 - decay);
+        }
+
+        int maxTotal = pool.getMaxTotal();
+        int maxIdle = (int) Math.ceil(state.demand * headroom);
+        long exhausted = metrics.getExhaustedCount();
+        if (exhausted > state.lastExhausted) {
+            maxIdle = Math.max(maxIdle, pool.getMaxIdle() * 2);
+        }
+        state.lastExhausted = exhausted;
+        maxIdle = clamp(maxIdle, Math.min(floor, maxTotal), maxTotal);
+        int minIdle = clamp((int) Math.ceil(state.demand), 0, maxIdle);
+
+        if (maxIdle != pool.getMaxIdle() || minIdle != pool.getMinIdle()) {
+            logger.info("redis pool {} idle bounds [{}, {}] -> [{}, {}], observed demand {}",
+                    pool.getAddress(), pool.getMinIdle(), pool.getMaxIdle(), minIdle, maxIdle, observed);
+        }
+        // 上下限不变时也要补足被空闲检测关闭的连接
+        pool.setIdleBounds(minIdle, maxIdle);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 设置最大空闲连接数的下限，默认 8
+     *
+     * @param floor 下限
+     */
+    public synchronized void setFloor(int floor) {
+        if (floor < 0) {
+            throw new IllegalArgumentException("floor can't be negative");
+        }
+        this.floor = floor;
+    }
+
+    /**
+     * 设置最大空闲连接数相对平滑需求的余量系数，默认 1.5
+     *
+     * @param headroom 余量系数，不小于 1
+     */
+    public synchronized void setHeadroom(double headroom) {
+        if (headroom < 1) {
+            throw new IllegalArgumentException("headroom must be at least 1");
+        }
+        this.headroom = headroom;
+    }
+
+    /**
+     * 设置需求下降时的平滑系数，越接近 1 回落越慢，默认 0.9
+     *
+     * @param decay 平滑系数，取值 [0, 1)
+     */
+    public synchronized void setDecay(double decay) {
+        if (decay < 0 || decay >= 1) {
+            throw new IllegalArgumentException("decay must be in [0, 1)");
+        }
+        this.decay = decay;
+    }
+
+    private static final class State {
+        private double demand;
+        private long lastExhausted;
+
+        State(MonitoredJedisPool pool) {
+            this.demand = pool.getMinIdle();
+            this.lastExhausted = pool.getMetrics().getExhaustedCount();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.dorax.cache;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Redis 拓扑路由，决定一个键由哪个节点的连接池处理
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+interface RedisRouter extends Closeable {
+
+    /**
+     * 选择处理该键的连接池
+     *
+     * @param key         键
+     * @param fromReplica 是否允许从副本读取，没有副本时总是返回主节点
+     * @return 连接池
+     */
+    MonitoredJedisPool pool(String key, boolean fromReplica);
+
+    /**
+     * 所有主节点的连接池
+     *
+     * @return 连接池
+     */
+    Collection<MonitoredJedisPool> masters();
+
+    /**
+     * 包括副本在内的所有连接池
+     *
+     * @return 节点地址到连接池的映射
+     */
+    Map<String, MonitoredJedisPool> pools();
+
+    /**
+     * 重新获取拓扑，固定拓扑时什么也不做
+     */
+    default void refresh() {
+    }
+
+    /**
+     * 处理 Redis Cluster 的 MOVED/ASK 重定向，固定拓扑时不会出现重定向，返回 null
+     *
+     * @param key    键
+     * @param target 重定向的目标节点
+     * @param moved  true 为 MOVED（槽位已迁移），false 为 ASK（槽位迁移中）
+     * @return 目标节点的连接池，无法处理时为 null
+     */
+    default MonitoredJedisPool redirect(String key, HostAndPort target, boolean moved) {
+        return null;
+    }
+
+    /**
+     * 关闭所有连接池
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,59 @@
+package org.dorax.cache;
+
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * 基于游标分页的惰性迭代器
+ * 每次当前页耗尽时才用上一页返回的游标取下一页，游标回到 0 表示该来源结束，多个来源依次迭代。
+ * 取页函数自行借还连接，迭代器本身不持有连接，中途放弃迭代不会泄漏资源。
+ *
+ * @param <T> 元素类型
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class RedisScanIterator<T> implements Iterator<T> {
+
+    private final List<Function<String, ScanResult<T>>> sources;
+    private int source;
+    private String cursor = ScanParams.SCAN_POINTER_START;
+    private boolean started;
+    private Iterator<T> page = Collections.emptyIterator();
+
+    RedisScanIterator(List<Function<String, ScanResult<T>>> sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (source == sources.size()) {
+                return false;
+            }
+            if (started && ScanParams.SCAN_POINTER_START.equals(cursor)) {
+                source++;
+                started = false;
+                continue;
+            }
+            ScanResult<T> result = sources.get(source).apply(cursor);
+            started = true;
+            cursor = result.getCursor();
+            page = result.getResult().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+}
@@ -0,0 +1,77 @@
+package org.dorax.cache;
+
+import redis.clients.jedis.util.Hashing;
+import redis.clients.jedis.util.JedisClusterHashTagUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 客户端一致性哈希分片路由
+ * 每个分片按主节点地址在哈希环上放置 160 个虚拟节点，增删分片只会迁移相邻区间的键；
+ * 键中包含 {tag} 时只对 tag 求哈希，保证相关的键落在同一个分片。只有一个分片时退化为单节点（可带副本）。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class RedisShardRouter implements RedisRouter {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, RedisNodeGroup> ring = new TreeMap<>();
+    private final List<RedisNodeGroup> groups;
+    private final Map<String, MonitoredJedisPool> pools = new LinkedHashMap<>();
+
+    RedisShardRouter(List<RedisNodeGroup> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        this.groups = new ArrayList<>(shards);
+        for (RedisNodeGroup group : groups) {
+            for (int n = 0; n < VIRTUAL_NODES; n++) {
+                ring.put(Hashing.MURMUR_HASH.hash(group.master.getAddress() + "*" + n), group);
+            }
+            pools.put(group.master.getAddress(), group.master);
+            for (MonitoredJedisPool replica : group.replicas) {
+                pools.put(replica.getAddress(), replica);
+            }
+        }
+    }
+
+    @Override
+    public MonitoredJedisPool pool(String key, boolean fromReplica) {
+        RedisNodeGroup group;
+        if (groups.size() == 1) {
+            group = groups.get(0);
+        } else {
+            Map.Entry<Long, RedisNodeGroup> entry = ring.ceilingEntry(Hashing.MURMUR_HASH.hash(JedisClusterHashTagUtil.getHashTag(key)));
+            group = entry != null ? entry.getValue() : ring.firstEntry().getValue();
+        }
+        return group.pool(fromReplica);
+    }
+
+    @Override
+    public Collection<MonitoredJedisPool> masters() {
+        List<MonitoredJedisPool> masters = new ArrayList<>(groups.size());
+        for (RedisNodeGroup group : groups) {
+            masters.add(group.master);
+        }
+        return masters;
+    }
+
+    @Override
+    public Map<String, MonitoredJedisPool> pools() {
+        return pools;
+    }
+
+    @Override
+    public void close() {
+        for (MonitoredJedisPool pool : pools.values()) {
+            pool.close();
+        }
+    }
+}
@@ -1,24 +1,54 @@
 package org.dorax.cache;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.dorax.lang.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisClientConfig;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
 
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Jedis Cache 工具类
+ * 支持单节点、主从、客户端一致性哈希分片和 Redis Cluster 四种拓扑，分别通过对应的 init 方法初始化；
+ * 各方法按键路由到负责的节点，批量方法按节点分组后分别 pipeline 发送。
  *
  * @author wuchunfu
  * @date 2019-12-13
@@ -31,12 +61,33 @@ public class RedisUtils {
      * 为key指定过期时间，单位是秒
      */
     public static int SECONDS = 3600 * 24;
+    /**
+     * 批量操作时每个 pipeline 批次包含的命令数，通过 {@link #setBatchSize(int)} 修改
+     */
+    private static volatile int batchSize = 500;
+    /**
+     * 写入前是否检查键已存在并打印警告，开启后检查与写入在同一次往返中完成
+     */
+    public static boolean WARN_IF_EXISTS = false;
+    /**
+     * object 类型值的序列化方式
+     */
+    private static volatile ValueCodec valueCodec = new JdkValueCodec();
+    /**
+     * Lua 脚本到 SHA1 摘要的缓存
+     */
+    private static final ConcurrentMap<String, String> SCRIPT_SHA = new ConcurrentHashMap<>();
     /**
      * 超时时间，单位是秒
      */
     private static final int TIMEOUT = 10000;
     private volatile static JedisPoolConfig jedisPoolConfig;
-    private static JedisPool jedisPool;
+    private static volatile RedisRouter router;
+    private static RedisPoolSizer poolSizer;
+    /**
+     * 读请求是否允许路由到副本
+     */
+    private static volatile boolean readFromReplica;
     public static String ip = "192.168.x.x";
     public static int port = 6379;
     public static int timeout = 2000;
@@ -57,8 +108,8 @@ public class RedisUtils {
         jedisPoolConfig.setTestOnReturn(false);
         // 是否开启空闲资源检测。
         jedisPoolConfig.setTestWhileIdle(true);
-        // 空闲资源的检测周期（单位为毫秒）(-1 不检测)
-        jedisPoolConfig.setTimeBetweenEvictionRunsMillis(-1);
+        // 空闲资源的检测周期（单位为毫秒）(-1 不检测)，开启后才会关闭长期空闲的连接并补足最小空闲连接
+        jedisPoolConfig.setTimeBetweenEvictionRunsMillis(30000);
         // 资源池中资源的最小空闲时间（单位为毫秒），达到此值后空闲资源将被移除。
         jedisPoolConfig.setMinEvictableIdleTimeMillis(180000);
         // 做空闲资源检测时，每次检测资源的个数。
@@ -66,15 +117,106 @@ public class RedisUtils {
     }
 
     public static void init(String host, int port, String password) {
-        if (jedisPool == null) {
+        initReplicated(new HostAndPort(host, port), Collections.emptyList(), password);
+    }
+
+    /**
+     * 初始化主从拓扑，写请求发往主节点，开启 {@link #setReadFromReplica(boolean)} 后读请求分摊到副本
+     *
+     * @param master   主节点
+     * @param replicas 副本节点
+     * @param password 密码，为空时不认证
+     */
+    public static void initReplicated(HostAndPort master, List<HostAndPort> replicas, String password) {
+        initSharded(Collections.singletonMap(master, replicas), password);
+    }
+
+    /**
+     * 初始化客户端一致性哈希分片拓扑
+     *
+     * @param masters  各分片的主节点
+     * @param password 密码，为空时不认证
+     */
+    public static void initSharded(List<HostAndPort> masters, String password) {
+        Map<HostAndPort, List<HostAndPort>> shards = new LinkedHashMap<>();
+        for (HostAndPort master : masters) {
+            shards.put(master, Collections.emptyList());
+        }
+        initSharded(shards, password);
+    }
+
+    /**
+     * 初始化客户端一致性哈希分片拓扑，每个分片可以带副本
+     *
+     * @param shards   各分片的主节点到其副本的映射
+     * @param password 密码，为空时不认证
+     */
+    public static void initSharded(Map<HostAndPort, List<HostAndPort>> shards, String password) {
+        initRouter(() -> {
+            JedisClientConfig clientConfig = clientConfig(password);
+            List<RedisNodeGroup> groups = new ArrayList<>(shards.size());
+            for (Map.Entry<HostAndPort, List<HostAndPort>> e : shards.entrySet()) {
+                List<MonitoredJedisPool> replicas = new ArrayList<>(e.getValue().size());
+                for (HostAndPort replica : e.getValue()) {
+                    replicas.add(new MonitoredJedisPool(jedisPoolConfig, replica, clientConfig, false));
+                }
+                groups.add(new RedisNodeGroup(new MonitoredJedisPool(jedisPoolConfig, e.getKey(), clientConfig, false), replicas));
+            }
+            return new RedisShardRouter(groups);
+        });
+    }
+
+    /**
+     * 初始化 Redis Cluster 拓扑，按槽位直接路由到负责的节点
+     *
+     * @param seeds    任意几个集群节点
+     * @param password 密码，为空时不认证
+     */
+    public static void initCluster(Set<HostAndPort> seeds, String password) {
+        initRouter(() -> {
+            JedisClientConfig clientConfig = clientConfig(password);
+            return new RedisClusterRouter(seeds, clientConfig,
+                    (node, readOnly) -> new MonitoredJedisPool(jedisPoolConfig, node, clientConfig, readOnly));
+        });
+    }
+
+    private static void initRouter(Supplier<RedisRouter> factory) {
+        if (router == null) {
             synchronized (RedisUtils.class) {
-                if (jedisPool == null) {
-                    jedisPool = new JedisPool(jedisPoolConfig, host, port, TIMEOUT, password);
+                if (router == null) {
+                    router = factory.get();
                 }
             }
         }
     }
 
+    private static JedisClientConfig clientConfig(String password) {
+        return DefaultJedisClientConfig.builder()
+                .connectionTimeoutMillis(TIMEOUT)
+                .socketTimeoutMillis(TIMEOUT)
+                .password(StringUtils.isEmpty(password) ? null : password)
+                .build();
+    }
+
+    /**
+     * 设置读请求是否允许路由到副本，默认关闭
+     * 开启后 get*、exists 等读方法会读到复制延迟内的旧值，副本不可用时回退到主节点
+     *
+     * @param enabled 是否允许
+     */
+    public static void setReadFromReplica(boolean enabled) {
+        readFromReplica = enabled;
+    }
+
+    /**
+     * 立即刷新集群拓扑，非集群模式下什么也不做
+     */
+    public static void refreshTopology() {
+        if (router != null) {
+            router.refresh();
+        }
+    }
+
     /**
      * 添加String类型数据
      *
@@ -84,18 +226,10 @@ public class RedisUtils {
      */
     public static String set(String key, String value) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.set(key, value);
-            jedis.expire(key, SECONDS);
+            result = execute("set", key, false, jedis -> setWithExpire(jedis, key, value, SECONDS));
         } catch (Exception e) {
             logger.error("set {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -111,11 +245,7 @@ public class RedisUtils {
     public static String set(Jedis jedis, String key, String value) {
         String result = null;
         try {
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.set(key, value);
-            jedis.expire(key, SECONDS);
+            result = setWithExpire(jedis, key, value, SECONDS);
         } catch (Exception e) {
             logger.error("set {} = {}", key, value, e);
         } finally {
@@ -136,11 +266,7 @@ public class RedisUtils {
     public static String set(Jedis jedis, String key, String value, int cacheSeconds) {
         String result = null;
         try {
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.set(key, value);
-            jedis.expire(key, cacheSeconds);
+            result = setWithExpire(jedis, key, value, cacheSeconds);
         } catch (Exception e) {
             logger.error("set {} = {}", key, value, e);
         } finally {
@@ -159,20 +285,10 @@ public class RedisUtils {
      */
     public static String set(String key, String value, int cacheSeconds) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.set(key, value);
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("set", key, false, jedis -> setWithExpire(jedis, key, value, cacheSeconds));
         } catch (Exception e) {
             logger.error("set {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -187,20 +303,13 @@ public class RedisUtils {
      */
     public static String setObject(String key, Object value, int cacheSeconds) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.set(getBytesKey(key), toBytes(value));
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            byte[] bytes = toBytes(value);
+            result = execute("setObject", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> cacheSeconds != 0
+                    ? p.setex(getBytesKey(key), (long) cacheSeconds, bytes)
+                    : p.set(getBytesKey(key), bytes)));
         } catch (Exception e) {
             logger.error("setObject {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -215,20 +324,10 @@ public class RedisUtils {
      */
     public static long setLeftList(String key, String value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.lpush(key, value);
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setLeftList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.lpush(key, value)));
         } catch (Exception e) {
             logger.error("setLeftList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -243,20 +342,10 @@ public class RedisUtils {
      */
     public static long setLeftList(String key, List<String> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.lpush(key, (String[]) value.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setLeftList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.lpush(key, value.toArray(new String[0]))));
         } catch (Exception e) {
             logger.error("setLeftList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -270,17 +359,10 @@ public class RedisUtils {
      */
     public static long setLeftList(String key, String... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.lpush(key, value);
+            result = execute("setLeftList", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.lpush(key, value)));
         } catch (Exception e) {
             logger.error("setLeftList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -294,18 +376,11 @@ public class RedisUtils {
      */
     public static long setLeftObjectList(String key, Object... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            List<byte[]> list = new ArrayList<>();
-            for (Object o : value) {
-                list.add(toBytes(o));
-            }
-            result = jedis.lpush(getBytesKey(key), (byte[][]) list.toArray());
+            byte[][] values = toBytesArray(Arrays.asList(value));
+            result = execute("setLeftObjectList", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.lpush(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setLeftObjectList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -320,24 +395,11 @@ public class RedisUtils {
      */
     public static long setLeftObjectList(String key, List<Object> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                logger.warn("set {} is exists.", key);
-            }
-            List<byte[]> list = new ArrayList<>();
-            for (Object o : value) {
-                list.add(toBytes(o));
-            }
-            result = jedis.lpush(getBytesKey(key), (byte[][]) list.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            byte[][] values = toBytesArray(value);
+            result = execute("setLeftObjectList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.lpush(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setLeftObjectList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -352,20 +414,10 @@ public class RedisUtils {
      */
     public static long setRightList(String key, String value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.rpush(key, value);
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setRightList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.rpush(key, value)));
         } catch (Exception e) {
             logger.error("setRightList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -380,20 +432,10 @@ public class RedisUtils {
      */
     public static long setRightList(String key, List<String> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.rpush(key, (String[]) value.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setRightList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.rpush(key, value.toArray(new String[0]))));
         } catch (Exception e) {
             logger.error("setRightList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -407,17 +449,10 @@ public class RedisUtils {
      */
     public static long setRightList(String key, String... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.rpush(key, value);
+            result = execute("setRightList", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.rpush(key, value)));
         } catch (Exception e) {
             logger.error("setRightList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -431,18 +466,11 @@ public class RedisUtils {
      */
     public static long setRightObjectList(String key, Object... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            List<byte[]> list = new ArrayList<>();
-            for (Object o : value) {
-                list.add(toBytes(o));
-            }
-            result = jedis.rpush(getBytesKey(key), (byte[][]) list.toArray());
+            byte[][] values = toBytesArray(Arrays.asList(value));
+            result = execute("setRightObjectList", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.rpush(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setRightObjectList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -457,24 +485,11 @@ public class RedisUtils {
      */
     public static long setRightObjectList(String key, List<Object> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                logger.warn("set {} is exists.", key);
-            }
-            List<byte[]> list = new ArrayList<>();
-            for (Object o : value) {
-                list.add(toBytes(o));
-            }
-            result = jedis.rpush(getBytesKey(key), (byte[][]) list.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            byte[][] values = toBytesArray(value);
+            result = execute("setRightObjectList", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.rpush(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setRightObjectList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -489,20 +504,10 @@ public class RedisUtils {
      */
     public static long setSet(String key, Set<String> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.sadd(key, (String[]) value.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setSet", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.sadd(key, value.toArray(new String[0]))));
         } catch (Exception e) {
             logger.error("setSet {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -517,24 +522,11 @@ public class RedisUtils {
      */
     public static long setObjectSet(String key, Set<Object> value, int cacheSeconds) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                logger.warn("set {} is exists.", key);
-            }
-            Set<byte[]> set = new HashSet<>();
-            for (Object o : value) {
-                set.add(toBytes(o));
-            }
-            result = jedis.sadd(getBytesKey(key), (byte[][]) set.toArray());
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            byte[][] values = toBytesArray(value);
+            result = execute("setObjectSet", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.sadd(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setObjectSet {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -548,17 +540,10 @@ public class RedisUtils {
      */
     public static long setSet(String key, String... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.sadd(key, value);
+            result = execute("setSet", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.sadd(key, value)));
         } catch (Exception e) {
             logger.error("setSet {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -572,21 +557,11 @@ public class RedisUtils {
      */
     public static long setSetObject(String key, Object... value) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            Set<byte[]> set = new HashSet<>();
-            for (Object o : value) {
-                set.add(toBytes(o));
-            }
-            result = jedis.rpush(getBytesKey(key), (byte[][]) set.toArray());
+            byte[][] values = toBytesArray(Arrays.asList(value));
+            result = execute("setSetObject", key, false, jedis -> writeWithExpire(jedis, key, 0, p -> p.sadd(getBytesKey(key), values)));
         } catch (Exception e) {
             logger.error("setSetObject {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -600,18 +575,10 @@ public class RedisUtils {
      */
     public static String setMap(String key, Map<String, String> value) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.hmset(key, value);
-            jedis.expire(key, SECONDS);
+            result = execute("setMap", key, false, jedis -> writeWithExpire(jedis, key, SECONDS, p -> p.hmset(key, value)));
         } catch (Exception e) {
             logger.error("setMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -626,20 +593,10 @@ public class RedisUtils {
      */
     public static String setMap(String key, Map<String, String> value, int cacheSeconds) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            result = jedis.hmset(key, value);
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setMap", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.hmset(key, value)));
         } catch (Exception e) {
             logger.error("setMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -652,25 +609,7 @@ public class RedisUtils {
      * @return 如果 hash 为空，则返回 OK 或 Exception
      */
     public static String setObjectMap(String key, Map<String, Object> value) {
-        String result = null;
-        Jedis jedis = null;
-        try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
-            Map<byte[], byte[]> map = new HashMap<>();
-            for (Map.Entry<String, Object> e : value.entrySet()) {
-                map.put(getBytesKey(e.getKey()), toBytes(e.getValue()));
-            }
-            result = jedis.hmset(getBytesKey(key), map);
-            jedis.expire(key, SECONDS);
-        } catch (Exception e) {
-            logger.error("setObjectMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
-        }
-        return result;
+        return setObjectMap(key, value, SECONDS);
     }
 
     /**
@@ -683,28 +622,90 @@ public class RedisUtils {
      */
     public static String setObjectMap(String key, Map<String, Object> value, int cacheSeconds) {
         String result = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                logger.warn("set {} is exists.", key);
-            }
             Map<byte[], byte[]> map = new HashMap<>();
             for (Map.Entry<String, Object> e : value.entrySet()) {
                 map.put(getBytesKey(e.getKey()), toBytes(e.getValue()));
             }
-            result = jedis.hmset(getBytesKey(key), map);
-            if (cacheSeconds != 0) {
-                jedis.expire(key, cacheSeconds);
-            }
+            result = execute("setObjectMap", key, false, jedis -> writeWithExpire(jedis, key, cacheSeconds, p -> p.hmset(getBytesKey(key), map)));
         } catch (Exception e) {
             logger.error("setObjectMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
 
+    /**
+     * 用 SETEX 原子地写入值和过期时间，一次往返完成
+     *
+     * @param jedis        jedis 对象
+     * @param key          键
+     * @param value        值
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 状态码
+     */
+    private static String setWithExpire(Jedis jedis, String key, String value, int cacheSeconds) {
+        if (!WARN_IF_EXISTS) {
+            return cacheSeconds != 0 ? jedis.setex(key, (long) cacheSeconds, value) : jedis.set(key, value);
+        }
+        return writeWithExpire(jedis, key, 0, p -> cacheSeconds != 0
+                ? p.setex(key, (long) cacheSeconds, value)
+                : p.set(key, value));
+    }
+
+    /**
+     * 在一个 pipeline 中执行写命令，需要过期时间时把写命令和 EXPIRE 包在同一个 MULTI/EXEC 中，
+     * 一次往返完成且过期时间与写入同时生效；开启 WARN_IF_EXISTS 时 EXISTS 检查也随同一批发送
+     *
+     * @param jedis        jedis 对象
+     * @param key          键
+     * @param cacheSeconds 超时时间，0为不超时
+     * @param command      写命令
+     * @return 写命令的返回值
+     */
+    private static <T> T writeWithExpire(Jedis jedis, String key, int cacheSeconds, Function<Pipeline, Response<T>> command) {
+        Pipeline pipeline = jedis.pipelined();
+        Response<Boolean> exists = WARN_IF_EXISTS ? pipeline.exists(key) : null;
+        if (cacheSeconds != 0) {
+            pipeline.multi();
+        }
+        Response<T> response = command.apply(pipeline);
+        Response<List<Object>> exec = null;
+        Response<Boolean> probe = null;
+        if (cacheSeconds != 0) {
+            pipeline.expire(key, (long) cacheSeconds);
+            exec = pipeline.exec();
+            if (router instanceof RedisClusterRouter) {
+                // 事务中命令的 MOVED/ASK 只会表现为 EXECABORT，放在 EXEC 之后的探测命令取得重定向的目标；
+                // 放在 MULTI 之前会消耗掉重试时 ASKING 的作用
+                probe = pipeline.exists(key);
+            }
+        }
+        pipeline.sync();
+        if (exec != null) {
+            try {
+                exec.get();
+            } catch (JedisDataException e) {
+                if (probe != null) {
+                    probe.get();
+                }
+                throw e;
+            }
+        }
+        if (exists != null && Boolean.TRUE.equals(exists.get())) {
+            logger.warn("set {} is exists.", key);
+        }
+        return response.get();
+    }
+
+    private static byte[][] toBytesArray(Collection<?> values) {
+        byte[][] bytes = new byte[values.size()][];
+        int i = 0;
+        for (Object o : values) {
+            bytes[i++] = toBytes(o);
+        }
+        return bytes;
+    }
+
     /**
      * 根据 key 获取 String 类型的值
      *
@@ -735,17 +736,11 @@ public class RedisUtils {
      */
     public static String get(String key) {
         String value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                value = jedis.get(key);
-                value = StringUtils.isNotBlank(value) && !"nil".equalsIgnoreCase(value) ? value : null;
-            }
+            value = execute("get", key, true, jedis -> jedis.get(key));
+            value = StringUtils.isNotBlank(value) && !"nil".equalsIgnoreCase(value) ? value : null;
         } catch (Exception e) {
             logger.error("get {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
@@ -758,16 +753,11 @@ public class RedisUtils {
      */
     public static Object getObject(String key) {
         Object value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                value = toObject(jedis.get(getBytesKey(key)));
-            }
+            byte[] bytes = execute("getObject", key, true, jedis -> jedis.get(getBytesKey(key)));
+            value = bytes == null ? null : toObject(bytes);
         } catch (Exception e) {
             logger.error("getObject {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
@@ -799,43 +789,35 @@ public class RedisUtils {
 
     /**
      * 根据 key 获取 List<String> 类型的数据
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamList(String, int)} 逐页读取
      *
      * @param key 键
      * @return List<String> 类型的值
      */
     public static List<String> getList(String key) {
         List<String> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            long l = jedis.llen(key);
-            if (l == 0) {
-                return null;
-            }
-            if (jedis.exists(key)) {
-                value = jedis.lrange(key, 0, -1);
-            }
+            // Redis 不保存空集合，读到空集合即为键不存在
+            value = execute("getList", key, true, jedis -> jedis.lrange(key, 0, -1));
+            value = value == null || value.isEmpty() ? null : value;
         } catch (Exception e) {
             logger.error("getList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
     /**
      * 根据 key 获取 List<Object> 类型的数据
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamObjectList(String, int)} 逐页读取
      *
      * @param key 键
      * @return List<Object> 类型的值
      */
     public static List<Object> getObjectList(String key) {
         List<Object> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                List<byte[]> list = jedis.lrange(getBytesKey(key), 0, -1);
+            List<byte[]> list = execute("getObjectList", key, true, jedis -> jedis.lrange(getBytesKey(key), 0, -1));
+            if (list != null && !list.isEmpty()) {
                 value = new ArrayList<>();
                 for (byte[] bs : list) {
                     value.add(toObject(bs));
@@ -843,108 +825,274 @@ public class RedisUtils {
             }
         } catch (Exception e) {
             logger.error("getObjectList {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
     /**
      * 根据 key 获取 Set<String> 类型的值
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamSet(String, int)} 逐页读取
      *
      * @param key 键
      * @return Set<String> 类型的值
      */
     public static Set<String> getSet(String key) {
         Set<String> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                value = jedis.smembers(key);
-            }
+            value = execute("getSet", key, true, jedis -> jedis.smembers(key));
+            value = value == null || value.isEmpty() ? null : value;
         } catch (Exception e) {
             logger.error("getSet {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
     /**
      * 根据 key 获取 Set<Object> 类型的值
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamObjectSet(String, int)} 逐页读取
      *
      * @param key 键
      * @return Set<Object> 类型的值
      */
     public static Set<Object> getObjectSet(String key) {
         Set<Object> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
+            Set<byte[]> set = execute("getObjectSet", key, true, jedis -> jedis.smembers(getBytesKey(key)));
+            if (set != null && !set.isEmpty()) {
                 value = new HashSet<>();
-                Set<byte[]> set = jedis.smembers(getBytesKey(key));
                 for (byte[] bs : set) {
                     value.add(toObject(bs));
                 }
             }
         } catch (Exception e) {
             logger.error("getObjectSet {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
     /**
      * 根据 key 获取 Map<String, String> 类型的值
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamMap(String, int)} 逐页读取
      *
      * @param key 键
      * @return Map<String, String> 类型的值
      */
     public static Map<String, String> getMap(String key) {
         Map<String, String> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                value = jedis.hgetAll(key);
-            }
+            value = execute("getMap", key, true, jedis -> jedis.hgetAll(key));
+            value = value == null || value.isEmpty() ? null : value;
         } catch (Exception e) {
             logger.error("getMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
     /**
      * 根据 key 获取 Map<String, Object> 类型的值
+     * 会一次读出整个集合，元素很多时请使用 {@link #streamObjectMap(String, int)} 逐页读取
      *
      * @param key 键
      * @return Map<String, Object> 类型的值
      */
     public static Map<String, Object> getObjectMap(String key) {
         Map<String, Object> value = null;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
+            Map<byte[], byte[]> map = execute("getObjectMap", key, true, jedis -> jedis.hgetAll(getBytesKey(key)));
+            if (map != null && !map.isEmpty()) {
                 value = new HashMap<>();
-                Map<byte[], byte[]> map = jedis.hgetAll(getBytesKey(key));
                 for (Map.Entry<byte[], byte[]> e : map.entrySet()) {
                     value.put(new String(e.getKey(), StandardCharsets.UTF_8), toObject(e.getValue()));
                 }
             }
         } catch (Exception e) {
             logger.error("getObjectMap {} = {}", key, value, e);
-        } finally {
-            closeJedis(jedis);
         }
         return value;
     }
 
+    /**
+     * 逐页读取 List 中的 String 类型元素，每页通过一次 LRANGE 获取
+     * 分页之间其他客户端对 List 的插入删除会造成元素重复或遗漏
+     *
+     * @param key      键
+     * @param pageSize 每页元素数
+     * @return 惰性的元素流，不存在时为空流
+     * @throws IllegalArgumentException pageSize 不是正数
+     */
+    public static Stream<String> streamList(String key, int pageSize) {
+        checkPageSize(pageSize);
+        return cursorStream("streamList", key, (jedis, cursor) -> {
+            long start = Long.parseLong(cursor);
+            List<String> page = jedis.lrange(key, start, start + pageSize - 1);
+            return new ScanResult<>(nextOffset(start, page.size(), pageSize), page);
+        });
+    }
+
+    /**
+     * 逐页读取 List 中的 object 类型元素，每页通过一次 LRANGE 获取
+     *
+     * @param key      键
+     * @param pageSize 每页元素数
+     * @return 惰性的元素流，不存在时为空流
+     */
+    public static Stream<Object> streamObjectList(String key, int pageSize) {
+        checkPageSize(pageSize);
+        byte[] bytesKey = getBytesKey(key);
+        return cursorStream("streamObjectList", key, (jedis, cursor) -> {
+            long start = Long.parseLong(cursor);
+            List<byte[]> page = jedis.lrange(bytesKey, start, start + pageSize - 1);
+            return new ScanResult<>(nextOffset(start, page.size(), pageSize), page);
+        }).map(RedisUtils::toObject);
+    }
+
+    /**
+     * 通过 SSCAN 逐页读取 Set 中的 String 类型元素
+     * 迭代期间一直存在的元素至少返回一次，可能重复返回
+     *
+     * @param key      键
+     * @param pageSize 每页期望的元素数（COUNT）
+     * @return 惰性的元素流，不存在时为空流
+     */
+    public static Stream<String> streamSet(String key, int pageSize) {
+        checkPageSize(pageSize);
+        ScanParams params = new ScanParams().count(pageSize);
+        return cursorStream("streamSet", key, (jedis, cursor) -> jedis.sscan(key, cursor, params));
+    }
+
+    /**
+     * 通过 SSCAN 逐页读取 Set 中的 object 类型元素
+     *
+     * @param key      键
+     * @param pageSize 每页期望的元素数（COUNT）
+     * @return 惰性的元素流，不存在时为空流
+     */
+    public static Stream<Object> streamObjectSet(String key, int pageSize) {
+        checkPageSize(pageSize);
+        byte[] bytesKey = getBytesKey(key);
+        ScanParams params = new ScanParams().count(pageSize);
+        return cursorStream("streamObjectSet", key, (jedis, cursor) -> {
+            ScanResult<byte[]> page = jedis.sscan(bytesKey, getBytes(cursor), params);
+            return new ScanResult<>(page.getCursor(), page.getResult());
+        }).map(RedisUtils::toObject);
+    }
+
+    /**
+     * 通过 HSCAN 逐页读取 Map 中的 String 类型字段
+     * 迭代期间一直存在的字段至少返回一次，可能重复返回
+     *
+     * @param key      键
+     * @param pageSize 每页期望的字段数（COUNT）
+     * @return 惰性的字段流，不存在时为空流
+     */
+    public static Stream<Map.Entry<String, String>> streamMap(String key, int pageSize) {
+        checkPageSize(pageSize);
+        ScanParams params = new ScanParams().count(pageSize);
+        return cursorStream("streamMap", key, (jedis, cursor) -> jedis.hscan(key, cursor, params));
+    }
+
+    /**
+     * 通过 HSCAN 逐页读取 Map 中的 object 类型字段
+     *
+     * @param key      键
+     * @param pageSize 每页期望的字段数（COUNT）
+     * @return 惰性的字段流，不存在时为空流
+     */
+    public static Stream<Map.Entry<String, Object>> streamObjectMap(String key, int pageSize) {
+        checkPageSize(pageSize);
+        byte[] bytesKey = getBytesKey(key);
+        ScanParams params = new ScanParams().count(pageSize);
+        return cursorStream("streamObjectMap", key, (jedis, cursor) -> {
+            ScanResult<Map.Entry<byte[], byte[]>> page = jedis.hscan(bytesKey, getBytes(cursor), params);
+            return new ScanResult<>(page.getCursor(), page.getResult());
+        }).map(e -> new AbstractMap.SimpleImmutableEntry<>(new String(e.getKey(), StandardCharsets.UTF_8), toObject(e.getValue())));
+    }
+
+    /**
+     * 通过 SCAN 逐页列出匹配的键，多节点时依次遍历每个主节点
+     *
+     * @param pattern  匹配模式，例如 user:*
+     * @param pageSize 每页期望的键数（COUNT）
+     * @return 惰性的键流
+     */
+    public static Stream<String> scanKeys(String pattern, int pageSize) {
+        checkPageSize(pageSize);
+        ScanParams params = new ScanParams().match(pattern).count(pageSize);
+        List<Function<String, ScanResult<String>>> sources = new ArrayList<>();
+        for (MonitoredJedisPool pool : router.masters()) {
+            sources.add(cursor -> {
+                Jedis jedis = null;
+                try {
+                    jedis = pool.getResource("scanKeys");
+                    return jedis.scan(cursor, params);
+                } catch (RuntimeException e) {
+                    logger.error("scanKeys {} on {} cursor {}", pattern, pool.getAddress(), cursor, e);
+                    throw e;
+                } finally {
+                    closeJedis(jedis);
+                }
+            });
+        }
+        return toStream(new RedisScanIterator<>(sources));
+    }
+
+    /**
+     * 以游标逐页读取一个键，每页单独借还连接；读取失败时记录日志并向流的消费者抛出异常，避免把不完整的结果当作完整结果。
+     * 第一页确定读取的节点后所有分页都固定在该节点上：游标只在产生它的节点上有效，换到另一个副本会重复或遗漏元素
+     *
+     * @param command 命令名
+     * @param key     键
+     * @param page    根据游标读取一页，返回下一页的游标，游标为 0 时结束
+     * @param <T>     元素类型
+     * @return 惰性的元素流
+     */
+    private static <T> Stream<T> cursorStream(String command, String key, BiFunction<Jedis, String, ScanResult<T>> page) {
+        MonitoredJedisPool[] pinned = new MonitoredJedisPool[1];
+        Function<String, ScanResult<T>> source = cursor -> {
+            Jedis jedis = null;
+            try {
+                if (pinned[0] == null) {
+                    MonitoredJedisPool pool = pool(key, true);
+                    try {
+                        jedis = pool.getResource(command);
+                    } catch (JedisException e) {
+                        MonitoredJedisPool master = pool(key, false);
+                        if (pool == master) {
+                            throw e;
+                        }
+                        logger.warn("replica {} is unavailable, read {} from master.", pool.getAddress(), key, e);
+                        pool = master;
+                        jedis = pool.getResource(command);
+                    }
+                    pinned[0] = pool;
+                } else {
+                    jedis = pinned[0].getResource(command);
+                }
+                return page.apply(jedis, cursor);
+            } catch (RuntimeException e) {
+                logger.error("{} {} cursor {}", command, key, cursor, e);
+                throw e;
+            } finally {
+                closeJedis(jedis);
+            }
+        };
+        return toStream(new RedisScanIterator<>(Collections.singletonList(source)));
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+    }
+
+    private static String nextOffset(long start, int size, int pageSize) {
+        return size < pageSize ? ScanParams.SCAN_POINTER_START : String.valueOf(start + size);
+    }
+
     /**
      * 移除Map缓存中的值
      *
@@ -954,14 +1102,10 @@ public class RedisUtils {
      */
     public static long delMap(String key, String mapKey) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            result = jedis.hdel(key, mapKey);
+            result = execute("delMap", key, false, jedis -> jedis.hdel(key, mapKey));
         } catch (Exception e) {
             logger.error("delMap {} {}", key, mapKey, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -975,14 +1119,10 @@ public class RedisUtils {
      */
     public static long delObjectMap(String key, String mapKey) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            result = jedis.hdel(getBytesKey(key), getBytesKey(mapKey));
+            result = execute("delObjectMap", key, false, jedis -> jedis.hdel(getBytesKey(key), getBytesKey(mapKey)));
         } catch (Exception e) {
             logger.error("delObjectMap {} {}", key, mapKey, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -996,14 +1136,10 @@ public class RedisUtils {
      */
     public static boolean mapIsExists(String key, String mapKey) {
         boolean result = false;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            result = jedis.hexists(key, mapKey);
+            result = execute("mapIsExists", key, true, jedis -> jedis.hexists(key, mapKey));
         } catch (Exception e) {
             logger.error("mapIsExists {} {}", key, mapKey, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1017,14 +1153,10 @@ public class RedisUtils {
      */
     public static boolean objectMapIsExists(String key, String mapKey) {
         boolean result = false;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            result = jedis.hexists(getBytesKey(key), getBytesKey(mapKey));
+            result = execute("objectMapIsExists", key, true, jedis -> jedis.hexists(getBytesKey(key), getBytesKey(mapKey)));
         } catch (Exception e) {
             logger.error("objectMapIsExists {} {}", key, mapKey, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1037,18 +1169,13 @@ public class RedisUtils {
      */
     public static long deleteValueOfList(String key, String value, int count) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                result = jedis.lrem(key, count, value);
-            } else {
-                logger.error("deleteValueOfList {} not exists", key);
+            result = execute("deleteValueOfList", key, false, jedis -> jedis.lrem(key, count, value));
+            if (result == 0) {
+                logger.error("deleteValueOfList {} {} not exists", key, value);
             }
         } catch (Exception e) {
             logger.error("deleteValueOfList {}", key, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1083,18 +1210,13 @@ public class RedisUtils {
      */
     public static long del(String key) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                result = jedis.del(key);
-            } else {
+            result = execute("del", key, false, jedis -> jedis.del(key));
+            if (result == 0) {
                 logger.error("del {} not exists", key);
             }
         } catch (Exception e) {
             logger.error("del {}", key, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1107,18 +1229,13 @@ public class RedisUtils {
      */
     public static long delObject(String key) {
         long result = 0;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(getBytesKey(key))) {
-                result = jedis.del(getBytesKey(key));
-            } else {
+            result = execute("delObject", key, false, jedis -> jedis.del(getBytesKey(key)));
+            if (result == 0) {
                 logger.error("delObject {} not exists", key);
             }
         } catch (Exception e) {
             logger.error("delObject {}", key, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1152,16 +1269,10 @@ public class RedisUtils {
      */
     public static boolean isExists(String key) {
         boolean result = false;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            if (jedis.exists(key)) {
-                result = true;
-            }
+            result = execute("isExists", key, true, jedis -> jedis.exists(key));
         } catch (Exception e) {
             logger.error("isExists {}", key, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
@@ -1174,48 +1285,443 @@ public class RedisUtils {
      */
     public static boolean objectIsExists(String key) {
         boolean result = false;
-        Jedis jedis = null;
         try {
-            jedis = getResource();
-            result = jedis.exists(getBytesKey(key));
+            result = execute("objectIsExists", key, true, jedis -> jedis.exists(getBytesKey(key)));
         } catch (Exception e) {
             logger.error("objectIsExists {}", key, e);
-        } finally {
-            closeJedis(jedis);
         }
         return result;
     }
 
     /**
-     * 清空当前库
+     * 批量获取 String 类型的值，按节点分组后按批大小分批通过 pipeline 发送
+     * 集群槽位迁移期间被重定向的键在批量读取之后逐个重试一次
+     *
+     * @param keys 键列表
+     * @return 与键列表顺序一致的值，不存在的键对应 null
      */
-    public static void flushDB() {
-        Jedis jedis = null;
+    public static List<String> mget(List<String> keys) {
+        String[] values = new String[keys.size()];
+        List<Integer> redirected = new ArrayList<>();
         try {
-            jedis = getResource();
-            jedis.flushDB();
+            forEachBatch("mget", indexes(keys.size()), keys::get, true, (jedis, batch) -> {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<String>> responses = new ArrayList<>(batch.size());
+                for (int i : batch) {
+                    responses.add(pipeline.get(keys.get(i)));
+                }
+                pipeline.sync();
+                for (int j = 0; j < batch.size(); j++) {
+                    try {
+                        String value = responses.get(j).get();
+                        values[batch.get(j)] = StringUtils.isNotBlank(value) && !"nil".equalsIgnoreCase(value) ? value : null;
+                    } catch (JedisRedirectionException e) {
+                        redirected.add(batch.get(j));
+                    }
+                }
+            });
         } catch (Exception e) {
-            logger.error("flushDB: ", e);
-        } finally {
-            closeJedis(jedis);
+            logger.error("mget {} keys", keys.size(), e);
+            return null;
+        }
+        for (int i : redirected) {
+            values[i] = get(keys.get(i));
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 批量设置 String 类型的值，并设置过期时间，按节点分组后按批大小分批通过 pipeline 发送
+     * 集群槽位迁移期间被重定向的键在批量发送之后逐个重试一次
+     *
+     * @param values       键值对
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 写入成功的数量
+     */
+    public static int mset(Map<String, String> values, int cacheSeconds) {
+        int[] result = {0};
+        List<Map.Entry<String, String>> redirected = new ArrayList<>();
+        try {
+            forEachBatch("mset", values.entrySet(), Map.Entry::getKey, false, (jedis, batch) -> {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<String>> responses = new ArrayList<>(batch.size());
+                for (Map.Entry<String, String> e : batch) {
+                    if (cacheSeconds != 0) {
+                        responses.add(pipeline.setex(e.getKey(), (long) cacheSeconds, e.getValue()));
+                    } else {
+                        responses.add(pipeline.set(e.getKey(), e.getValue()));
+                    }
+                }
+                pipeline.sync();
+                result[0] += countWritten("mset", batch, responses, redirected);
+            });
+        } catch (Exception e) {
+            logger.error("mset {} keys", values.size(), e);
+        }
+        for (Map.Entry<String, String> e : redirected) {
+            if ("OK".equals(set(e.getKey(), e.getValue(), cacheSeconds))) {
+                result[0]++;
+            }
+        }
+        return result[0];
+    }
+
+    /**
+     * 批量获取 object 类型的值，按节点分组后按批大小分批通过 pipeline 发送
+     * 集群槽位迁移期间被重定向的键在批量读取之后逐个重试一次
+     *
+     * @param keys 键列表
+     * @return 与键列表顺序一致的值，不存在的键对应 null
+     */
+    public static List<Object> multiGetObject(List<String> keys) {
+        Object[] values = new Object[keys.size()];
+        List<Integer> redirected = new ArrayList<>();
+        try {
+            forEachBatch("multiGetObject", indexes(keys.size()), keys::get, true, (jedis, batch) -> {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<byte[]>> responses = new ArrayList<>(batch.size());
+                for (int i : batch) {
+                    responses.add(pipeline.get(getBytesKey(keys.get(i))));
+                }
+                pipeline.sync();
+                for (int j = 0; j < batch.size(); j++) {
+                    try {
+                        byte[] bytes = responses.get(j).get();
+                        values[batch.get(j)] = bytes == null ? null : toObject(bytes);
+                    } catch (JedisRedirectionException e) {
+                        redirected.add(batch.get(j));
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.error("multiGetObject {} keys", keys.size(), e);
+            return null;
+        }
+        for (int i : redirected) {
+            values[i] = getObject(keys.get(i));
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 批量设置 object 类型的值，并设置过期时间，按节点分组后按批大小分批通过 pipeline 发送
+     * 集群槽位迁移期间被重定向的键在批量发送之后逐个重试一次
+     *
+     * @param values       键值对
+     * @param cacheSeconds 超时时间，0为不超时
+     * @return 写入成功的数量
+     */
+    public static int multiSetWithTtl(Map<String, ?> values, int cacheSeconds) {
+        int[] result = {0};
+        List<Map.Entry<String, ?>> redirected = new ArrayList<>();
+        try {
+            forEachBatch("multiSetWithTtl", new ArrayList<Map.Entry<String, ?>>(values.entrySet()), Map.Entry::getKey, false, (jedis, batch) -> {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<String>> responses = new ArrayList<>(batch.size());
+                for (Map.Entry<String, ?> e : batch) {
+                    if (cacheSeconds != 0) {
+                        responses.add(pipeline.setex(getBytesKey(e.getKey()), (long) cacheSeconds, toBytes(e.getValue())));
+                    } else {
+                        responses.add(pipeline.set(getBytesKey(e.getKey()), toBytes(e.getValue())));
+                    }
+                }
+                pipeline.sync();
+                result[0] += countWritten("multiSetWithTtl", batch, responses, redirected);
+            });
+        } catch (Exception e) {
+            logger.error("multiSetWithTtl {} keys", values.size(), e);
+        }
+        for (Map.Entry<String, ?> e : redirected) {
+            if ("OK".equals(setObject(e.getKey(), e.getValue(), cacheSeconds))) {
+                result[0]++;
+            }
+        }
+        return result[0];
+    }
+
+    /**
+     * 统计一批写入中返回 OK 的数量；被重定向的元素放入 redirected 等待重试，其他失败记录日志
+     *
+     * @param command    命令名
+     * @param batch      一批键值对
+     * @param responses  与 batch 一一对应的回复
+     * @param redirected 收集被重定向的键值对
+     * @param <E>        键值对类型
+     * @return 成功的数量
+     */
+    private static <E extends Map.Entry<String, ?>> int countWritten(String command, List<E> batch,
+                                                                    List<Response<String>> responses, List<E> redirected) {
+        int written = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                if ("OK".equals(responses.get(i).get())) {
+                    written++;
+                }
+            } catch (JedisRedirectionException e) {
+                redirected.add(batch.get(i));
+            } catch (JedisDataException e) {
+                logger.error("{} {}", command, batch.get(i).getKey(), e);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 将 key 中储存的数字加上指定的增量，key 不存在时先初始化为 0
+     *
+     * @param key       键
+     * @param increment 增量
+     * @return 增加后的值，执行失败时为 null
+     */
+    public static Long incrBy(String key, long increment) {
+        Long result = null;
+        try {
+            result = execute("incrBy", key, false, jedis -> jedis.incrBy(key, increment));
+        } catch (Exception e) {
+            logger.error("incrBy {} {}", key, increment, e);
+        }
+        return result;
+    }
+
+    /**
+     * 执行只涉及一个键的 Lua 脚本，先以 EVALSHA 发送摘要，服务端尚未缓存该脚本时再发送完整脚本
+     *
+     * @param script Lua 脚本
+     * @param key    脚本中的 KEYS[1]，同时决定由哪个节点执行
+     * @param args   脚本中的 ARGV
+     * @return 脚本的返回值，执行失败时为 null
+     */
+    public static Object eval(String script, String key, String... args) {
+        return eval(script, Collections.singletonList(key), Arrays.asList(args));
+    }
+
+    /**
+     * 执行 Lua 脚本，由第一个键所在的节点执行，分片或集群模式下所有键需要使用相同的 {hash tag}
+     *
+     * @param script Lua 脚本
+     * @param keys   脚本中的 KEYS
+     * @param args   脚本中的 ARGV
+     * @return 脚本的返回值，执行失败时为 null
+     */
+    public static Object eval(String script, List<String> keys, List<String> args) {
+        Object result = null;
+        try {
+            String sha = SCRIPT_SHA.computeIfAbsent(script, DigestUtils::sha1Hex);
+            result = execute("eval", keys.get(0), false, jedis -> {
+                try {
+                    return jedis.evalsha(sha, keys, args);
+                } catch (JedisNoScriptException e) {
+                    return jedis.eval(script, keys, args);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("eval {} {}", keys, args, e);
+        }
+        return result;
+    }
+
+    private static List<Integer> indexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * 清空当前库，多节点时清空所有主节点
+     */
+    public static void flushDB() {
+        for (MonitoredJedisPool pool : router.masters()) {
+            Jedis jedis = null;
+            try {
+                jedis = pool.getResource("flushDB");
+                jedis.flushDB();
+            } catch (Exception e) {
+                logger.error("flushDB {}: ", pool.getAddress(), e);
+            } finally {
+                closeJedis(jedis);
+            }
         }
     }
 
     /**
-     * 获取资源
+     * 获取资源，分片或集群模式下返回第一个主节点的连接
      *
      * @return jedis 对象
      */
     public static Jedis getResource() {
         Jedis jedis = null;
         try {
-            jedis = jedisPool.getResource();
+            jedis = router.masters().iterator().next().getResource();
         } catch (JedisException e) {
             logger.error("getResource.", e);
         }
         return jedis;
     }
 
+    /**
+     * 获取负责该键的主节点的资源，并在归还时记录该命令的连接占用耗时
+     *
+     * @param command 命令名
+     * @param key     键
+     * @return jedis 对象
+     */
+    static Jedis getResource(String command, String key) {
+        Jedis jedis = null;
+        try {
+            jedis = router.pool(key, false).getResource(command);
+        } catch (JedisException e) {
+            logger.error("getResource {} {}.", command, key, e);
+        }
+        return jedis;
+    }
+
+    /**
+     * 获取读取该键的资源，允许从副本读取时优先使用副本，副本不可用时回退到主节点
+     *
+     * @param command 命令名
+     * @param key     键
+     * @return jedis 对象
+     */
+    private static Jedis getReadResource(String command, String key) {
+        if (!readFromReplica) {
+            return getResource(command, key);
+        }
+        MonitoredJedisPool pool = router.pool(key, true);
+        try {
+            return pool.getResource(command);
+        } catch (JedisException e) {
+            logger.warn("replica {} is unavailable, read {} from master.", pool.getAddress(), key, e);
+            return getResource(command, key);
+        }
+    }
+
+    /**
+     * 在负责该键的节点上执行命令；集群模式下收到 MOVED 时刷新拓扑、收到 ASK 时先发送 ASKING，
+     * 然后在重定向的目标节点上重试一次，迁移槽位或主从切换期间的命令不会因为拓扑过期而丢失
+     *
+     * @param command 命令名
+     * @param key     键
+     * @param read    是否为读请求
+     * @param action  在连接上执行的命令
+     * @param <T>     返回值类型
+     * @return 命令的返回值
+     */
+    private static <T> T execute(String command, String key, boolean read, Function<Jedis, T> action) {
+        Jedis jedis = read ? getReadResource(command, key) : getResource(command, key);
+        if (jedis == null) {
+            throw new JedisConnectionException("could not get a resource for " + key);
+        }
+        JedisRedirectionException redirection;
+        try {
+            return action.apply(jedis);
+        } catch (JedisRedirectionException e) {
+            redirection = e;
+        } finally {
+            closeJedis(jedis);
+        }
+        boolean ask = redirection instanceof JedisAskDataException;
+        MonitoredJedisPool pool = router.redirect(key, redirection.getTargetNode(), !ask);
+        if (pool == null) {
+            throw redirection;
+        }
+        logger.info("{} {} redirected to {}", command, key, redirection.getTargetNode());
+        jedis = null;
+        try {
+            jedis = pool.getResource(command);
+            if (ask) {
+                jedis.asking();
+            }
+            return action.apply(jedis);
+        } finally {
+            closeJedis(jedis);
+        }
+    }
+
+    /**
+     * 负责该键的连接池
+     *
+     * @param key  键
+     * @param read 是否为读请求
+     * @return 连接池
+     */
+    static MonitoredJedisPool pool(String key, boolean read) {
+        return router.pool(key, read && readFromReplica);
+    }
+
+    /**
+     * 把元素按负责其键的节点分组，每个节点借一个连接，再按批大小分批交给 action 处理
+     *
+     * @param command 命令名
+     * @param items   元素
+     * @param keyOf   取元素的键
+     * @param read    是否为读请求
+     * @param action  处理一批元素
+     * @param <T>     元素类型
+     */
+    private static <T> void forEachBatch(String command, Collection<T> items, Function<T, String> keyOf, boolean read,
+                                         BiConsumer<Jedis, List<T>> action) {
+        Map<MonitoredJedisPool, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(pool(keyOf.apply(item), read), k -> new ArrayList<>()).add(item);
+        }
+        for (Map.Entry<MonitoredJedisPool, List<T>> group : groups.entrySet()) {
+            Jedis jedis = null;
+            try {
+                jedis = group.getKey().getResource(command);
+                List<T> list = group.getValue();
+                int size = batchSize;
+                for (int from = 0; from < list.size(); from += size) {
+                    action.accept(jedis, list.subList(from, Math.min(from + size, list.size())));
+                }
+            } finally {
+                closeJedis(jedis);
+            }
+        }
+    }
+
+    /**
+     * 获取连接池指标
+     *
+     * @return 连接池指标，多节点时为第一个主节点的指标，未初始化时为 null
+     */
+    public static RedisPoolMetrics getPoolMetrics() {
+        return router == null ? null : router.masters().iterator().next().getMetrics();
+    }
+
+    /**
+     * 获取所有节点的连接池指标
+     *
+     * @return 节点地址到连接池指标的映射，未初始化时为空
+     */
+    public static Map<String, RedisPoolMetrics> getAllPoolMetrics() {
+        Map<String, RedisPoolMetrics> metrics = new LinkedHashMap<>();
+        if (router != null) {
+            for (Map.Entry<String, MonitoredJedisPool> e : router.pools().entrySet()) {
+                metrics.put(e.getKey(), e.getValue().getMetrics());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 启动按需调整空闲连接数的控制器，重复调用返回同一个控制器
+     *
+     * @param periodMs 调整周期（毫秒）
+     * @return 控制器
+     */
+    public static synchronized RedisPoolSizer startPoolSizer(long periodMs) {
+        if (router == null) {
+            throw new IllegalStateException("RedisUtils is not initialized");
+        }
+        if (poolSizer == null) {
+            RedisRouter current = router;
+            poolSizer = new RedisPoolSizer(() -> current.pools().values(), periodMs).start();
+        }
+        return poolSizer;
+    }
+
     /**
      * 释放资源
      *
@@ -1224,7 +1730,7 @@ public class RedisUtils {
     public static void closeJedisPool(Jedis jedis) {
         try {
             if (jedis != null) {
-                jedisPool.close();
+                router.close();
             }
         } catch (Exception e) {
             logger.error("close: ", e);
@@ -1313,6 +1819,40 @@ public class RedisUtils {
         return null;
     }
 
+    /**
+     * 设置批量操作时每个 pipeline 批次包含的命令数，默认 500
+     *
+     * @param size 批大小
+     */
+    public static void setBatchSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        batchSize = size;
+    }
+
+    /**
+     * 批量操作时每个 pipeline 批次包含的命令数
+     *
+     * @return 批大小
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 设置 object 类型值的序列化方式，默认为 {@link JdkValueCodec}
+     * 切换后以旧方式写入的数据将无法读取，需要在数据过期或迁移后再切换
+     *
+     * @param codec 序列化方式
+     */
+    public static void setValueCodec(ValueCodec codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec can't be null");
+        }
+        valueCodec = codec;
+    }
+
     /**
      * Object转换byte[]类型
      *
@@ -1320,7 +1860,7 @@ public class RedisUtils {
      * @return 字节数组
      */
     public static byte[] toBytes(Object object) {
-        return ObjectUtils.serialize(object);
+        return valueCodec.encode(object);
     }
 
     /**
@@ -1330,6 +1870,6 @@ public class RedisUtils {
      * @return object 对象
      */
     public static Object toObject(byte[] bytes) {
-        return ObjectUtils.unserialize(bytes);
+        return valueCodec.decode(bytes);
     }
 }
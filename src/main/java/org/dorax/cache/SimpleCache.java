@@ -1,10 +1,32 @@
 package org.dorax.cache;
 
+import org.dorax.idx.SystemClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
- * 一个带TTL的简单Cache，对于过期的entry没有清理
+ * 一个带TTL的简单Cache
+ * 默认不限制容量；指定最大权重后使用 W-TinyLFU 策略淘汰：
+ * 新条目先进入约占 1% 容量的窗口 LRU，被挤出窗口后与主区（分段 LRU：试用区 + 保护区）的淘汰候选者比较访问频率，
+ * 频率更高者留下。访问记录先写入无锁的读缓冲区，由写操作或缓冲区积满时批量回放，读路径不争抢锁。
+ * 写操作直接写入 ConcurrentHashMap，淘汰队列和时间轮的维护记录进写缓冲区，用 tryLock 抢到锁的线程批量回放，
+ * 写线程之间不互相阻塞；不限制容量且不带TTL的写入没有需要维护的状态，只写 Map。
+ * 带TTL的条目挂在分层时间轮上，由写操作和 {@link #cleanUp()} 推进时间轮批量清理，即使从未被读取也会被回收。
+ * {@link #get(String, long, Function)} 提供自动加载：同一个键的并发未命中共享一次加载；
+ * 开启提前刷新后，条目在过期前的一段时间内被访问会触发异步重新加载，调用方始终拿到旧值而不会集中穿透。
  *
  * @param <E>
  * @author wuchunfu
@@ -12,31 +34,687 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class SimpleCache<E> {
 
+    private static Logger logger = LoggerFactory.getLogger(SimpleCache.class);
+
+    private static final int UNLINKED = 0;
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    /**
+     * 窗口区占总容量的比例
+     */
+    private static final double WINDOW_PERCENT = 0.01d;
+    /**
+     * 保护区占主区容量的比例
+     */
+    private static final double PROTECTED_PERCENT = 0.8d;
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
     final ConcurrentMap<String, CacheEntry<E>> cache = new ConcurrentHashMap<>();
 
-    private static class CacheEntry<E> {
+    /**
+     * 正在进行的加载（包括提前刷新），同一个键同一时刻最多一个
+     */
+    private final ConcurrentMap<String, CompletableFuture<E>> loading = new ConcurrentHashMap<>();
+    private volatile long defaultTtlMs = Long.MAX_VALUE;
+    private volatile long refreshAheadMs;
+    private volatile Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * 最大权重，小于 0 表示不限制容量
+     */
+    private final long maximumWeight;
+    private final Weigher<? super E> weigher;
+
+    /**
+     * 以下字段只在 evictionLock 保护下访问
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final TimerWheel<E> timerWheel = new TimerWheel<>(SystemClock.now(), this::evictEntry);
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque<E> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<E> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<E> protectedDeque = new AccessOrderDeque<>();
+    private long windowMaximum;
+    private long protectedMaximum;
+    private long windowWeight;
+    private long protectedWeight;
+    private long weightedSize;
+
+    /**
+     * 已写入 Map、尚未同步到淘汰队列和时间轮的写操作
+     */
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicReferenceArray<CacheEntry<E>> readBuffer;
+    private final AtomicLong readBufferWriteCount = new AtomicLong();
+    private volatile long readBufferReadCount;
+
+    static final class CacheEntry<E> {
+        final String key;
         final long expireTime;
         final E value;
+        final int weight;
+
+        int queueType;
+        CacheEntry<E> prevInAccessOrder;
+        CacheEntry<E> nextInAccessOrder;
+        CacheEntry<E> prevInTimer;
+        CacheEntry<E> nextInTimer;
 
-        public CacheEntry(E value, long expire) {
+        CacheEntry(String key, E value, long expire, int weight) {
+            this.key = key;
             this.expireTime = expire;
             this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 不限制容量的缓存
+     */
+    public SimpleCache() {
+        this.maximumWeight = -1;
+        this.weigher = null;
+        this.sketch = null;
+        this.readBuffer = null;
+    }
+
+    /**
+     * 按条目数限制容量的缓存
+     *
+     * @param maximumSize 最大条目数
+     */
+    public SimpleCache(long maximumSize) {
+        this(maximumSize, (key, value) -> 1);
+    }
+
+    /**
+     * 按权重限制容量的缓存
+     *
+     * @param maximumWeight 最大权重
+     * @param weigher       权重计算器
+     */
+    public SimpleCache(long maximumWeight, Weigher<? super E> weigher) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight can't be less than 0");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("weigher can't be null");
         }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.windowMaximum = (long) (maximumWeight * WINDOW_PERCENT);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_PERCENT);
+        this.sketch = new FrequencySketch(Math.min(maximumWeight, 1024));
+        this.readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
     }
 
     public void put(String key, E e, long ttlMs) {
         if (key == null || e == null) {
             return;
         }
-        CacheEntry<E> entry = new CacheEntry<>(e, System.currentTimeMillis() + ttlMs);
-        cache.put(key, entry);
+        CacheEntry<E> entry = newEntry(key, e, ttlMs);
+        if (entry == null) {
+            remove(key);
+            return;
+        }
+        afterWrite(entry, cache.put(key, entry));
+    }
+
+    /**
+     * 仅当键仍然映射到 expected 时写入新值，期间发生过写入、删除或过期清理时放弃
+     *
+     * @param expected 触发本次写入时的条目
+     * @param e        新值
+     * @param ttlMs    存活时间（毫秒）
+     * @return 是否写入
+     */
+    private boolean replace(CacheEntry<E> expected, E e, long ttlMs) {
+        if (e == null) {
+            return false;
+        }
+        CacheEntry<E> entry = newEntry(expected.key, e, ttlMs);
+        if (entry == null || !cache.replace(expected.key, expected, entry)) {
+            return false;
+        }
+        afterWrite(entry, expected);
+        return true;
+    }
+
+    /**
+     * 创建新条目，存活时间不为正时返回 null
+     */
+    private CacheEntry<E> newEntry(String key, E e, long ttlMs) {
+        long now = SystemClock.now();
+        long expireTime = ttlMs > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMs;
+        if (expireTime <= now) {
+            return null;
+        }
+        int weight = isBounded() ? weigher.weigh(key, e) : 1;
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight can't be less than 0");
+        }
+        return new CacheEntry<>(key, e, expireTime, weight);
+    }
+
+    /**
+     * 新条目已写入 Map 后登记维护任务
+     */
+    private void afterWrite(CacheEntry<E> entry, CacheEntry<E> old) {
+        if (!isBounded() && entry.expireTime == Long.MAX_VALUE) {
+            // 新条目不需要维护，只有旧条目在时间轮中时才需要移除
+            if (old != null && old.expireTime != Long.MAX_VALUE) {
+                writeBuffer.add(() -> unlink(old));
+                tryMaintenance();
+            }
+            return;
+        }
+        writeBuffer.add(() -> onWrite(entry, old));
+        tryMaintenance();
+    }
+
+    /**
+     * 回放一次写入：移除被替换的旧条目，新条目仍在 Map 中时挂到时间轮和窗口区
+     */
+    private void onWrite(CacheEntry<E> entry, CacheEntry<E> old) {
+        if (old != null) {
+            unlink(old);
+        }
+        if (cache.get(entry.key) != entry) {
+            // 回放之前已被替换或删除
+            return;
+        }
+        if (isBounded() && entry.weight > maximumWeight) {
+            // 单个条目超过总容量，直接丢弃
+            cache.remove(entry.key, entry);
+            return;
+        }
+        if (entry.expireTime != Long.MAX_VALUE) {
+            timerWheel.schedule(entry);
+        }
+        if (isBounded()) {
+            entry.queueType = WINDOW;
+            window.addLast(entry);
+            windowWeight += entry.weight;
+            weightedSize += entry.weight;
+            sketch.ensureCapacity(cache.size());
+            sketch.increment(FrequencySketch.spread(entry.key.hashCode()));
+        }
     }
 
     public E get(String key) {
         CacheEntry<E> entry = cache.get(key);
-        if (entry != null && entry.expireTime > System.currentTimeMillis()) {
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireTime > SystemClock.now()) {
+            if (isBounded()) {
+                afterRead(entry);
+            }
             return entry.value;
         }
+        // 过期条目交给时间轮清理，读路径不承担清理成本
         return null;
     }
+
+    /**
+     * 获取值，未命中时使用 loader 加载并以默认TTL写入缓存
+     *
+     * @param key    键
+     * @param loader 加载函数，返回 null 时不缓存
+     * @return 值
+     */
+    public E get(String key, Function<? super String, ? extends E> loader) {
+        return get(key, defaultTtlMs, loader);
+    }
+
+    /**
+     * 获取值，未命中时使用 loader 加载并写入缓存
+     * 同一个键的并发未命中只会执行一次 loader，其余线程等待并共享结果；
+     * 命中的条目剩余寿命不足提前刷新时间时，在后台异步重新加载，本次仍返回旧值；
+     * 加载期间该键被重新写入、删除或清理时，丢弃加载结果。
+     *
+     * @param key    键
+     * @param ttlMs  加载结果的存活时间（毫秒）
+     * @param loader 加载函数，返回 null 时不缓存
+     * @return 值
+     */
+    public E get(String key, long ttlMs, Function<? super String, ? extends E> loader) {
+        if (key == null) {
+            return null;
+        }
+        CacheEntry<E> entry = cache.get(key);
+        if (entry != null) {
+            long now = SystemClock.now();
+            if (entry.expireTime > now) {
+                if (isBounded()) {
+                    afterRead(entry);
+                }
+                long refreshAhead = refreshAheadMs;
+                if (refreshAhead > 0 && entry.expireTime - now <= refreshAhead) {
+                    refreshAsync(entry, ttlMs, loader);
+                }
+                return entry.value;
+            }
+        }
+        return load(key, ttlMs, loader);
+    }
+
+    private E load(String key, long ttlMs, Function<? super String, ? extends E> loader) {
+        CompletableFuture<E> future = new CompletableFuture<>();
+        CompletableFuture<E> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            // 拿到加载权后再查一次，避免重复执行刚刚完成的加载
+            E value = get(key);
+            if (value == null) {
+                value = loader.apply(key);
+                put(key, value, ttlMs);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private void refreshAsync(CacheEntry<E> entry, long ttlMs, Function<? super String, ? extends E> loader) {
+        String key = entry.key;
+        CompletableFuture<E> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    E value = loader.apply(key);
+                    if (!replace(entry, value, ttlMs)) {
+                        logger.debug("refresh {} dropped, the entry has changed", key);
+                    }
+                    future.complete(value);
+                } catch (Throwable t) {
+                    logger.warn("refresh {} failed, keep the old value", key, t);
+                    future.completeExceptionally(t);
+                } finally {
+                    loading.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("refresh {} rejected", key, e);
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static <E> E join(CompletableFuture<E> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 设置 {@link #get(String, Function)} 使用的默认TTL，默认永不过期
+     *
+     * @param defaultTtlMs 默认TTL（毫秒）
+     */
+    public void setDefaultTtl(long defaultTtlMs) {
+        this.defaultTtlMs = defaultTtlMs;
+    }
+
+    /**
+     * 设置提前刷新时间，条目剩余寿命小于该值时被访问会触发异步刷新，0 表示关闭
+     *
+     * @param refreshAheadMs 提前刷新时间（毫秒）
+     */
+    public void setRefreshAhead(long refreshAheadMs) {
+        this.refreshAheadMs = refreshAheadMs;
+    }
+
+    /**
+     * 设置执行异步刷新的线程池，默认为 {@link ForkJoinPool#commonPool()}
+     *
+     * @param executor 线程池
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor can't be null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * 移除指定的键
+     *
+     * @param key 键
+     */
+    public void remove(String key) {
+        if (key == null) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            CacheEntry<E> old = cache.remove(key);
+            if (old != null) {
+                unlink(old);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            if (isBounded()) {
+                drainReadBuffer();
+            }
+            for (CacheEntry<E> entry : cache.values()) {
+                unlink(entry);
+            }
+            cache.clear();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 当前条目数，包括尚未清理的过期条目
+     *
+     * @return 条目数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 当前总权重，不限制容量时等于条目数
+     *
+     * @return 总权重
+     */
+    public long weightedSize() {
+        if (!isBounded()) {
+            return cache.size();
+        }
+        evictionLock.lock();
+        try {
+            maintenance(SystemClock.now());
+            return weightedSize;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * 推进时间轮，清理所有已过期的条目；写操作会自动执行，长时间只读时可定期调用
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance(SystemClock.now());
+        } finally {
+            unlock();
+        }
+    }
+
+    private void maintenance(long now) {
+        drainWriteBuffer();
+        if (isBounded()) {
+            drainReadBuffer();
+        }
+        timerWheel.advance(now);
+    }
+
+    private void drainWriteBuffer() {
+        boolean written = false;
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+            written = true;
+        }
+        if (written && isBounded()) {
+            evict();
+        }
+    }
+
+    /**
+     * 锁空闲时回放写缓冲区，锁被占用时直接返回，由持有锁的线程在释放后接着回放
+     */
+    private void tryMaintenance() {
+        while (!writeBuffer.isEmpty() && evictionLock.tryLock()) {
+            try {
+                maintenance(SystemClock.now());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 释放锁；持有锁期间其他线程 tryLock 失败留下的写操作在这里接着回放
+     */
+    private void unlock() {
+        evictionLock.unlock();
+        tryMaintenance();
+    }
+
+    private boolean isBounded() {
+        return maximumWeight >= 0;
+    }
+
+    /**
+     * 把访问记录写入读缓冲区，缓冲区已满时直接丢弃；积累到阈值后尝试回放
+     */
+    private void afterRead(CacheEntry<E> entry) {
+        long writeCount = readBufferWriteCount.get();
+        long pending = writeCount - readBufferReadCount;
+        if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+            readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), entry);
+            pending++;
+        }
+        if (pending >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+            try {
+                maintenance(SystemClock.now());
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        long head = readBufferReadCount;
+        long tail = readBufferWriteCount.get();
+        for (; head < tail; head++) {
+            int index = (int) (head & READ_BUFFER_MASK);
+            CacheEntry<E> entry = readBuffer.get(index);
+            if (entry == null) {
+                // 写入方已占位但尚未发布，留到下次回放
+                break;
+            }
+            readBuffer.lazySet(index, null);
+            onAccess(entry);
+        }
+        readBufferReadCount = head;
+    }
+
+    private void onAccess(CacheEntry<E> entry) {
+        if (entry.queueType == UNLINKED) {
+            return;
+        }
+        sketch.increment(FrequencySketch.spread(entry.key.hashCode()));
+        if (entry.queueType == WINDOW) {
+            window.moveToBack(entry);
+        } else if (entry.queueType == PROBATION) {
+            // 试用区中再次被访问的条目晋升到保护区
+            probation.remove(entry);
+            entry.queueType = PROTECTED;
+            protectedDeque.addLast(entry);
+            protectedWeight += entry.weight;
+            while (protectedWeight > protectedMaximum) {
+                CacheEntry<E> demoted = protectedDeque.pollFirst();
+                if (demoted == null) {
+                    break;
+                }
+                protectedWeight -= demoted.weight;
+                demoted.queueType = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            protectedDeque.moveToBack(entry);
+        }
+    }
+
+    /**
+     * 窗口溢出的条目进入试用区成为候选者，总权重超限时候选者与试用区队首的条目比较频率，淘汰频率低的一方
+     */
+    private void evict() {
+        CacheEntry<E> candidate = null;
+        while (windowWeight > windowMaximum) {
+            CacheEntry<E> first = window.pollFirst();
+            if (first == null) {
+                break;
+            }
+            windowWeight -= first.weight;
+            first.queueType = PROBATION;
+            probation.addLast(first);
+            if (candidate == null) {
+                candidate = first;
+            }
+        }
+        while (weightedSize > maximumWeight) {
+            CacheEntry<E> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                break;
+            }
+            if (candidate != null && candidate != victim
+                    && candidate.queueType == PROBATION && victim.queueType == PROBATION) {
+                if (admit(candidate, victim)) {
+                    evictEntry(victim);
+                } else {
+                    CacheEntry<E> next = candidate.nextInAccessOrder;
+                    evictEntry(candidate);
+                    candidate = next;
+                }
+            } else {
+                if (victim == candidate) {
+                    candidate = candidate.nextInAccessOrder;
+                }
+                evictEntry(victim);
+            }
+        }
+    }
+
+    private boolean admit(CacheEntry<E> candidate, CacheEntry<E> victim) {
+        int candidateFreq = sketch.frequency(FrequencySketch.spread(candidate.key.hashCode()));
+        int victimFreq = sketch.frequency(FrequencySketch.spread(victim.key.hashCode()));
+        return candidateFreq > victimFreq;
+    }
+
+    private void evictEntry(CacheEntry<E> entry) {
+        cache.remove(entry.key, entry);
+        unlink(entry);
+    }
+
+    private void unlink(CacheEntry<E> entry) {
+        timerWheel.deschedule(entry);
+        switch (entry.queueType) {
+            case WINDOW:
+                window.remove(entry);
+                windowWeight -= entry.weight;
+                break;
+            case PROBATION:
+                probation.remove(entry);
+                break;
+            case PROTECTED:
+                protectedDeque.remove(entry);
+                protectedWeight -= entry.weight;
+                break;
+            default:
+                return;
+        }
+        weightedSize -= entry.weight;
+        entry.queueType = UNLINKED;
+    }
+
+    /**
+     * 以条目自身的前后指针串联的双向链表，表头为最久未访问的条目
+     */
+    private static final class AccessOrderDeque<E> {
+        CacheEntry<E> first;
+        CacheEntry<E> last;
+
+        CacheEntry<E> peekFirst() {
+            return first;
+        }
+
+        CacheEntry<E> pollFirst() {
+            CacheEntry<E> e = first;
+            if (e != null) {
+                remove(e);
+            }
+            return e;
+        }
+
+        void addLast(CacheEntry<E> e) {
+            e.prevInAccessOrder = last;
+            e.nextInAccessOrder = null;
+            if (last == null) {
+                first = e;
+            } else {
+                last.nextInAccessOrder = e;
+            }
+            last = e;
+        }
+
+        void remove(CacheEntry<E> e) {
+            CacheEntry<E> prev = e.prevInAccessOrder;
+            CacheEntry<E> next = e.nextInAccessOrder;
+            if (prev == null) {
+                first = next;
+            } else {
+                prev.nextInAccessOrder = next;
+            }
+            if (next == null) {
+                last = prev;
+            } else {
+                next.prevInAccessOrder = prev;
+            }
+            e.prevInAccessOrder = null;
+            e.nextInAccessOrder = null;
+        }
+
+        void moveToBack(CacheEntry<E> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,156 @@
+package org.dorax.cache;
+
+import java.lang.reflect.Array;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮，为 {@link SimpleCache} 的 TTL 条目提供均摊 O(1) 的过期清理
+ * 时间以毫秒为单位，各层桶的跨度依次约为 1 秒、1 分钟、1 小时、1 天和 6 天；
+ * 时间推进时只处理跨过的桶，高层桶中未到期的条目会被重新分配到更精细的层级。
+ * 非线程安全，调用方需要在锁保护下访问。
+ *
+ * @param <E> 值类型
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class TimerWheel<E> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            // 1.02s
+            1L << 10,
+            // 1.09m
+            1L << 16,
+            // 1.17h
+            1L << 22,
+            // 1.55d
+            1L << 27,
+            // 6.21d
+            4L << 27,
+            4L << 27
+    };
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4])
+    };
+
+    private final SimpleCache.CacheEntry<E>[][] wheel;
+    private final Consumer<SimpleCache.CacheEntry<E>> evictor;
+    private long currentTime;
+
+    TimerWheel(long currentTime, Consumer<SimpleCache.CacheEntry<E>> evictor) {
+        this.currentTime = currentTime;
+        this.evictor = evictor;
+        this.wheel = newArray(SimpleCache.CacheEntry[].class, BUCKETS.length);
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = newArray(SimpleCache.CacheEntry.class, BUCKETS[i]);
+            for (int j = 0; j < wheel[i].length; j++) {
+                SimpleCache.CacheEntry<E> sentinel = new SimpleCache.CacheEntry<>(null, null, 0, 0);
+                sentinel.prevInTimer = sentinel;
+                sentinel.nextInTimer = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * 推进时间，清理跨过的桶中已到期的条目
+     *
+     * @param now 当前时间（毫秒）
+     */
+    void advance(long now) {
+        long previousTime = currentTime;
+        if (now <= previousTime) {
+            return;
+        }
+        currentTime = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, delta);
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta) {
+        SimpleCache.CacheEntry<E>[] timerWheel = wheel[index];
+        int mask = timerWheel.length - 1;
+        int steps = (int) Math.min(1 + delta, timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            SimpleCache.CacheEntry<E> sentinel = timerWheel[i & mask];
+            SimpleCache.CacheEntry<E> node = sentinel.nextInTimer;
+            sentinel.prevInTimer = sentinel;
+            sentinel.nextInTimer = sentinel;
+            while (node != sentinel) {
+                SimpleCache.CacheEntry<E> next = node.nextInTimer;
+                node.prevInTimer = null;
+                node.nextInTimer = null;
+                if (node.expireTime > currentTime) {
+                    schedule(node);
+                } else {
+                    evictor.accept(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * 按过期时间把条目放入对应的桶；已经过期的条目放入下一个刻度的桶，
+     * 否则会落进已经扫过的桶，要等时间轮转完一圈才被清理
+     *
+     * @param entry 条目
+     */
+    void schedule(SimpleCache.CacheEntry<E> entry) {
+        long time = entry.expireTime < currentTime ? currentTime + SPANS[0] : entry.expireTime;
+        SimpleCache.CacheEntry<E> sentinel = findBucket(time);
+        entry.nextInTimer = sentinel;
+        entry.prevInTimer = sentinel.prevInTimer;
+        sentinel.prevInTimer.nextInTimer = entry;
+        sentinel.prevInTimer = entry;
+    }
+
+    /**
+     * 从时间轮中移除条目，条目不在时间轮中时什么也不做
+     *
+     * @param entry 条目
+     */
+    void deschedule(SimpleCache.CacheEntry<E> entry) {
+        if (entry.nextInTimer == null) {
+            return;
+        }
+        entry.nextInTimer.prevInTimer = entry.prevInTimer;
+        entry.prevInTimer.nextInTimer = entry.nextInTimer;
+        entry.prevInTimer = null;
+        entry.nextInTimer = null;
+    }
+
+    /**
+     * 泛型数组只能以原始类型创建，未检查的转换集中在这里
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(Class<?> componentType, int length) {
+        return (T[]) Array.newInstance(componentType, length);
+    }
+
+    private SimpleCache.CacheEntry<E> findBucket(long time) {
+        long duration = time - currentTime;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+}
@@ -0,0 +1,26 @@
+package org.dorax.cache;
+
+/**
+ * {@link RedisUtils} 中 object 类型值的序列化方式
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public interface ValueCodec {
+
+    /**
+     * 序列化
+     *
+     * @param value 值，可能为 null
+     * @return 字节数组
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 反序列化
+     *
+     * @param bytes 字节数组，可能为 null
+     * @return 值
+     */
+    Object decode(byte[] bytes);
+}
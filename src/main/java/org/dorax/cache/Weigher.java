@@ -0,0 +1,21 @@
+package org.dorax.cache;
+
+/**
+ * 计算缓存条目的权重，用于按权重限制 {@link SimpleCache} 的容量
+ *
+ * @param <E> 值类型
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface Weigher<E> {
+
+    /**
+     * 返回条目的权重，必须为非负数
+     *
+     * @param key   键
+     * @param value 值
+     * @return 权重
+     */
+    int weigh(String key, E value);
+}
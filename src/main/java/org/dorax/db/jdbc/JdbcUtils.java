@@ -52,13 +52,14 @@ public class JdbcUtils {
      * 更新数据
      *
      * @param sql    sql 字符串
-     * @param params 参数列表
+     * @param params 参数列表，按各自的类型通过 setObject 绑定，数值列应传入数值
      * @return 影响行数
      * @throws SQLException 异常对象
      */
-    public boolean updateByParams(String sql, List<String> params) throws SQLException {
+    public boolean updateByParams(String sql, List<?> params) throws SQLException {
         // 影响行数
         int result;
+        closeStatement();
         pstmt = conn.prepareStatement(sql);
         int index = 1;
         // 填充sql语句中的占位符
@@ -75,13 +76,14 @@ public class JdbcUtils {
      * 查询多条记录
      *
      * @param sql    sql 字符串
-     * @param params 参数列表
+     * @param params 参数列表，按各自的类型通过 setObject 绑定，数值列应传入数值
      * @return 查询结果集合
      * @throws SQLException 异常对象
      */
-    public List<Map<String, Object>> selectByParams(String sql, List<String> params) throws SQLException {
+    public List<Map<String, Object>> selectByParams(String sql, List<?> params) throws SQLException {
         List<Map<String, Object>> list = new ArrayList<>();
         int index = 1;
+        closeStatement();
         pstmt = conn.prepareStatement(sql);
         if (null != params && !params.isEmpty()) {
             for (Object param : params) {
@@ -106,6 +108,22 @@ public class JdbcUtils {
         return list;
     }
 
+    /**
+     * 关闭上一次执行留下的结果集和语句，同一个实例反复执行时不会泄漏
+     *
+     * @throws SQLException 异常对象
+     */
+    private void closeStatement() throws SQLException {
+        if (null != rs) {
+            rs.close();
+            rs = null;
+        }
+        if (null != pstmt) {
+            pstmt.close();
+            pstmt = null;
+        }
+    }
+
     /**
      * 释放连接
      */
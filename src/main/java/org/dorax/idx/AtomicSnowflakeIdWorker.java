@@ -0,0 +1,139 @@
+package org.dorax.idx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的 Snowflake ID 生成器，ID 结构与 {@link SnowflakeIdWorker} 完全相同（41 位时间截 + 5 位数据中心 + 5 位机器 + 12 位序列）
+ * 时间截和毫秒内序列合并保存在一个 {@link AtomicLong} 中（时间截 << 12 | 序列），每次生成只做一次 CAS：
+ * 新状态取“当前时间 << 12”与“上次状态 + 1”中较大的一个，同一毫秒内递增序列，序列溢出时自然进位到下一毫秒，
+ * 进位后的时间截领先于时钟时，取得 ID 的线程等待时钟追上再返回，与 {@link SnowflakeIdWorker} 溢出时阻塞到下一毫秒的行为一致；
+ * 批量生成时一次 CAS 预留整段序列。
+ * 多个线程并发生成时不再排队等待同一个监视器，竞争失败的线程只需重试一次 CAS。
+ * 单个节点每毫秒最多 4096 个 ID 的上限由序列位数决定，与实现方式无关，需要更高吞吐时应分配更多的 workerId。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class AtomicSnowflakeIdWorker extends SnowflakeIdWorker {
+
+    /**
+     * 时间截 << 12 | 毫秒内序列，时间截为绝对毫秒数
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 读到过的最大时间，用于发现时钟回退；并发写入可能让它略小于真实的最大值，只会漏报不会误报
+     */
+    private volatile long lastClock;
+
+    /**
+     * 构造函数
+     *
+     * @param workerId     工作ID (0~31)
+     * @param datacenterId 数据中心ID (0~31)
+     */
+    public AtomicSnowflakeIdWorker(long workerId, long datacenterId) {
+        super(workerId, datacenterId);
+    }
+
+    /**
+     * 构造函数，从分配器租用节点ID
+     *
+     * @param assigner 节点ID分配器
+     */
+    public AtomicSnowflakeIdWorker(WorkerIdAssigner assigner) {
+        super(assigner);
+    }
+
+    /**
+     * 获得下一个ID (该方法是线程安全的，且不加锁)
+     *
+     * @return SnowflakeId
+     */
+    @Override
+    public long nextId() {
+        checkLease();
+        long timestamp = readClock();
+        long next;
+        while (true) {
+            long current = state.get();
+            next = Math.max(timestamp << sequenceBits, current + 1);
+            if (state.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        awaitClock(next >>> sequenceBits, timestamp);
+        return compose(next >>> sequenceBits, next & sequenceMask);
+    }
+
+    /**
+     * 批量获得ID，一次 CAS 预留连续的一段序列，序列用完时跨到后续毫秒
+     *
+     * @param dest 填充ID的数组
+     */
+    @Override
+    public void nextIds(long[] dest) {
+        int count = dest.length;
+        if (count == 0) {
+            return;
+        }
+        checkLease();
+        long timestamp = readClock();
+        long first;
+        while (true) {
+            long current = state.get();
+            first = Math.max(timestamp << sequenceBits, current + 1);
+            if (state.compareAndSet(current, first + count - 1)) {
+                break;
+            }
+        }
+        awaitClock((first + count - 1) >>> sequenceBits, timestamp);
+        long next = first;
+        long base = compose(next >>> sequenceBits, 0);
+        for (int i = 0; i < count; i++, next++) {
+            long sequence = next & sequenceMask;
+            if (sequence == 0) {
+                base = compose(next >>> sequenceBits, 0);
+            }
+            dest[i] = base | sequence;
+        }
+    }
+
+    /**
+     * 读取当前时间，比此前读到过的时间还小说明系统时钟回退过，按 {@link #clockBackwards(long, long)} 处理
+     * 必须先读 lastClock 再读时钟：lastClock 中的值是其他线程更早读到的，时钟正常时不可能大于随后读到的时间
+     *
+     * @return 本次使用的时间截
+     */
+    private long readClock() {
+        long seen = lastClock;
+        long timestamp = timeGen();
+        if (timestamp < seen) {
+            return clockBackwards(timestamp, seen);
+        }
+        if (timestamp > seen) {
+            lastClock = timestamp;
+        }
+        return timestamp;
+    }
+
+    /**
+     * 预留的时间截领先于时钟时（序列溢出进位或并发的批量预留），等待时钟追上，保证返回的ID不超前于当前时间；
+     * 时钟回退期间领先的幅度在借用范围内时直接返回
+     *
+     * @param reserved  预留的最大时间截
+     * @param timestamp 本次使用的时间截
+     */
+    private void awaitClock(long reserved, long timestamp) {
+        if (reserved <= timestamp) {
+            return;
+        }
+        long now = timeGen();
+        while (now < reserved) {
+            if (now < lastClock && reserved - now <= getMaxBorrowMillis()) {
+                return;
+            }
+            now = timeGen();
+        }
+    }
+}
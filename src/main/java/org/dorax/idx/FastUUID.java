@@ -0,0 +1,200 @@
+package org.dorax.idx;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 非密码学强度的快速 UUID 生成与编码
+ * {@link UUID#randomUUID()} 使用全局共享的 SecureRandom，高并发时互相等待；追踪、请求 ID 等场景不需要不可预测性，
+ * 这里改用每个线程独立的 {@link ThreadLocalRandom}，没有竞争。
+ * 支持随机的 UUIDv4 和按时间排序的 UUIDv7（前 48 位为毫秒时间截，字典序与生成时间一致，适合作为数据库索引）。
+ * 编码直接写入调用方提供的 char[]，不产生中间字符串：十六进制 32 位（或带 - 的 36 位），Base62 固定 22 位，
+ * Base62 字母表按 ASCII 升序排列并在左侧补 0，编码结果的字典序与数值顺序一致。
+ * 需要防止被猜测的场景（令牌、密钥等）仍应使用 {@link IdGenerate}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class FastUUID {
+
+    /**
+     * 十六进制编码长度
+     */
+    public static final int HEX_LENGTH = 32;
+
+    /**
+     * 带 - 的标准格式长度
+     */
+    public static final int STRING_LENGTH = 36;
+
+    /**
+     * Base62 编码长度，62^22 > 2^128
+     */
+    public static final int BASE62_LENGTH = 22;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] BASE62_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private FastUUID() {
+    }
+
+    /**
+     * 生成随机的 UUIDv4
+     *
+     * @return UUID
+     */
+    public static UUID randomUUID() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * 生成按时间排序的 UUIDv7，同一毫秒内的顺序是随机的
+     *
+     * @return UUID
+     */
+    public static UUID timeOrderedUUID() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (SystemClock.now() << 16) | 0x7000L | (random.nextInt() & 0x0FFF);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * 随机 UUIDv4 的十六进制编码，中间无 - 分割，与 {@link IdGenerate#uuid()} 格式相同
+     *
+     * @return 32 位字符串
+     */
+    public static String uuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        char[] chars = new char[HEX_LENGTH];
+        writeHex(msb, lsb, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 按时间排序的 UUIDv7 的十六进制编码，中间无 - 分割
+     *
+     * @return 32 位字符串
+     */
+    public static String uuid7() {
+        UUID uuid = timeOrderedUUID();
+        char[] chars = new char[HEX_LENGTH];
+        writeHex(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 随机 UUIDv4 的 Base62 编码
+     *
+     * @return 22 位字符串
+     */
+    public static String base62Uuid() {
+        UUID uuid = randomUUID();
+        char[] chars = new char[BASE62_LENGTH];
+        writeBase62(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 按时间排序的 UUIDv7 的 Base62 编码
+     *
+     * @return 22 位字符串
+     */
+    public static String base62Uuid7() {
+        UUID uuid = timeOrderedUUID();
+        char[] chars = new char[BASE62_LENGTH];
+        writeBase62(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 非密码学强度的随机 Base62 字符串，每个字符独立随机
+     *
+     * @param length 长度
+     * @return 字符串
+     */
+    public static String randomBase62(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = BASE62_DIGITS[random.nextInt(62)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 把 128 位值按十六进制写入数组，中间无 - 分割
+     *
+     * @param msb    高 64 位
+     * @param lsb    低 64 位
+     * @param dest   目标数组，从 offset 起至少需要 32 个位置
+     * @param offset 起始位置
+     */
+    public static void writeHex(long msb, long lsb, char[] dest, int offset) {
+        writeHex(msb, dest, offset, 16);
+        writeHex(lsb, dest, offset + 16, 16);
+    }
+
+    /**
+     * 把 UUID 按标准格式（8-4-4-4-12）写入数组
+     *
+     * @param uuid   UUID
+     * @param dest   目标数组，从 offset 起至少需要 36 个位置
+     * @param offset 起始位置
+     */
+    public static void writeString(UUID uuid, char[] dest, int offset) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        writeHex(msb >>> 32, dest, offset, 8);
+        dest[offset + 8] = '-';
+        writeHex(msb >>> 16, dest, offset + 9, 4);
+        dest[offset + 13] = '-';
+        writeHex(msb, dest, offset + 14, 4);
+        dest[offset + 18] = '-';
+        writeHex(lsb >>> 48, dest, offset + 19, 4);
+        dest[offset + 23] = '-';
+        writeHex(lsb, dest, offset + 24, 12);
+    }
+
+    /**
+     * 把 128 位无符号值按 Base62 写入数组，固定 22 位，左侧补 0
+     *
+     * @param msb    高 64 位
+     * @param lsb    低 64 位
+     * @param dest   目标数组，从 offset 起至少需要 22 个位置
+     * @param offset 起始位置
+     */
+    public static void writeBase62(long msb, long lsb, char[] dest, int offset) {
+        // 拆成 4 个 32 位的段做长除法，每段的中间结果都不会超出 long 的范围
+        long a = msb >>> 32;
+        long b = msb & 0xFFFFFFFFL;
+        long c = lsb >>> 32;
+        long d = lsb & 0xFFFFFFFFL;
+        for (int i = offset + BASE62_LENGTH - 1; i >= offset; i--) {
+            long remainder = a % 62;
+            a /= 62;
+            b |= remainder << 32;
+            remainder = b % 62;
+            b /= 62;
+            c |= remainder << 32;
+            remainder = c % 62;
+            c /= 62;
+            d |= remainder << 32;
+            remainder = d % 62;
+            d /= 62;
+            dest[i] = BASE62_DIGITS[(int) remainder];
+        }
+    }
+
+    private static void writeHex(long value, char[] dest, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            dest[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+}
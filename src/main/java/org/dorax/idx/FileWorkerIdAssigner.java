@@ -0,0 +1,96 @@
+package org.dorax.idx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * 基于文件锁的单机节点 ID 分配器
+ * 每个 ID 对应目录下的一个锁文件，依次尝试对锁文件加排他锁，第一个加锁成功的 ID 归本进程所有。
+ * 文件锁由操作系统持有，进程无论以何种方式退出都会自动释放，不需要心跳。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class FileWorkerIdAssigner implements WorkerIdAssigner {
+
+    private static Logger logger = LoggerFactory.getLogger(FileWorkerIdAssigner.class);
+
+    private final File directory;
+    private RandomAccessFile file;
+    private volatile FileLock lock;
+
+    /**
+     * 构造函数
+     *
+     * @param directory 存放锁文件的目录，同一台机器上的进程需要使用同一个目录
+     */
+    public FileWorkerIdAssigner(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public synchronized long assign(long maxId) {
+        if (lock != null) {
+            throw new IllegalStateException("worker id already assigned");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("can't create directory " + directory);
+        }
+        for (long id = 0; id <= maxId; id++) {
+            RandomAccessFile candidate = null;
+            try {
+                candidate = new RandomAccessFile(new File(directory, "worker-" + id + ".lock"), "rw");
+                FileChannel channel = candidate.getChannel();
+                FileLock acquired = channel.tryLock();
+                if (acquired != null) {
+                    file = candidate;
+                    lock = acquired;
+                    return id;
+                }
+            } catch (OverlappingFileLockException e) {
+                // 本进程中的其他分配器已经持有该 ID
+            } catch (IOException e) {
+                logger.error("lock worker id {}: ", id, e);
+            }
+            closeQuietly(candidate);
+        }
+        throw new IllegalStateException(String.format("all worker ids from 0 to %d are in use", maxId));
+    }
+
+    @Override
+    public boolean isValid() {
+        FileLock current = lock;
+        return current != null && current.isValid();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                logger.error("release worker id: ", e);
+            }
+            lock = null;
+        }
+        closeQuietly(file);
+        file = null;
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                logger.error("close: ", e);
+            }
+        }
+    }
+}
@@ -13,7 +13,10 @@ import java.util.Calendar;
  *
  * @author wuchunfu
  * @date 2020-02-05
+ * @deprecated 序号不随秒数重置且没有节点号，同一秒内超过 99999 个或多个进程同时生成时会重复，
+ * 请使用 {@link SequenceNoGenerator}
  */
+@Deprecated
 public class GenerateSequenceUtils {
     private static final FieldPosition HELPER_POSITION = new FieldPosition(0);
 
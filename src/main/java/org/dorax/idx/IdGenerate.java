@@ -19,6 +19,7 @@ public class IdGenerate {
 
     /**
      * 生成UUID, 中间无-分割.
+     * 不需要密码学强度时使用 {@link FastUUID#uuid()}，避免争用共享的 SecureRandom.
      */
     public static String uuid() {
         return StringUtils.replace(UUID.randomUUID().toString(), "-", "");
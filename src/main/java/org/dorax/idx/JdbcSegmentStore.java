@@ -0,0 +1,79 @@
+package org.dorax.idx;
+
+import org.dorax.db.jdbc.JdbcUtils;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于数据库表的号段存储
+ * 表结构至少包含业务标识和当前最大值两列，每个业务需要预先插入一行，例如：
+ * <pre>
+ * CREATE TABLE id_segment (biz_tag VARCHAR(128) PRIMARY KEY, max_id BIGINT NOT NULL);
+ * INSERT INTO id_segment (biz_tag, max_id) VALUES ('order', 0);
+ * </pre>
+ * 先读出当前最大值，再以“最大值仍等于读到的值”为条件更新，更新失败说明其他节点抢先取走了号段，重新读取后重试，
+ * 不依赖事务和行锁，自动提交模式下也不会分配出重叠的号段。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class JdbcSegmentStore implements SegmentStore {
+
+    private static final int MAX_RETRIES = 16;
+
+    private final JdbcUtils jdbc;
+    private final String selectSql;
+    private final String updateSql;
+
+    /**
+     * 使用表 id_segment，列 biz_tag 和 max_id
+     *
+     * @param jdbc 数据库连接
+     */
+    public JdbcSegmentStore(JdbcUtils jdbc) {
+        this(jdbc, "id_segment", "biz_tag", "max_id");
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param jdbc      数据库连接
+     * @param table     表名
+     * @param keyColumn 业务标识列
+     * @param maxColumn 当前最大值列
+     */
+    public JdbcSegmentStore(JdbcUtils jdbc, String table, String keyColumn, String maxColumn) {
+        this.jdbc = jdbc;
+        this.selectSql = "SELECT " + maxColumn + " FROM " + table + " WHERE " + keyColumn + " = ?";
+        this.updateSql = "UPDATE " + table + " SET " + maxColumn + " = ? WHERE " + keyColumn + " = ? AND " + maxColumn + " = ?";
+    }
+
+    /**
+     * 取得下一个号段，{@link JdbcUtils} 不是线程安全的，调用在本实例上串行执行
+     */
+    @Override
+    public synchronized long nextMax(String key, long step) {
+        try {
+            for (int i = 0; i < MAX_RETRIES; i++) {
+                List<Map<String, Object>> rows = jdbc.selectByParams(selectSql, Collections.singletonList(key));
+                if (rows.isEmpty()) {
+                    throw new IllegalStateException("segment key " + key + " not found");
+                }
+                Object value = rows.get(0).values().iterator().next();
+                long current = value instanceof Number ? ((Number) value).longValue() : Long.parseLong(String.valueOf(value));
+                long max = current + step;
+                // BIGINT 列按 Long 绑定，PostgreSQL 等数据库不会把字符串参数隐式转换为数值
+                if (jdbc.updateByParams(updateSql, Arrays.<Object>asList(max, key, current))) {
+                    return max;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("allocate segment of " + key, e);
+        }
+        throw new IllegalStateException(String.format("allocate segment of %s failed after %d retries", key, MAX_RETRIES));
+    }
+}
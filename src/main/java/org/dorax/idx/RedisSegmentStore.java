@@ -0,0 +1,23 @@
+package org.dorax.idx;
+
+import org.dorax.cache.RedisUtils;
+
+/**
+ * 基于 Redis INCRBY 的号段存储，键不存在时从 0 开始，键名为 "segment:" + 业务标识
+ * Redis 未开启持久化时重启会导致号段从头分配，需要严格不重复时请使用 {@link JdbcSegmentStore}。
+ * 使用前需要先初始化 {@link RedisUtils}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisSegmentStore implements SegmentStore {
+
+    @Override
+    public long nextMax(String key, long step) {
+        Long max = RedisUtils.incrBy("segment:" + key, step);
+        if (max == null) {
+            throw new IllegalStateException("redis is unavailable, can't allocate segment of " + key);
+        }
+        return max;
+    }
+}
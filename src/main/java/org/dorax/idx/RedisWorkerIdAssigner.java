@@ -0,0 +1,161 @@
+package org.dorax.idx;
+
+import org.dorax.cache.RedisUtils;
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 租约的节点 ID 分配器
+ * 每个 ID 对应一个带过期时间的键，从随机位置开始依次 SET NX PX 抢占，大量节点同时启动时也很少互相冲突，不需要额外协调；
+ * 后台线程每隔三分之一租期续期一次，节点宕机后键自然过期，ID 在一个租期后即可被新节点复用。
+ * 续期时键已过期（例如 Redis 短暂不可用）且尚未被他人占用，则用 SET NX PX 重新抢占同一个键；
+ * 续期发现键已被他人占用，或者超过一个租期没有续期成功时，租约失效，{@link #isValid()} 返回 false，
+ * 使用该分配器的 {@link SnowflakeIdWorker} 随之拒绝生成 ID，避免与接手该 ID 的节点重复。
+ * 复用 ID 的新节点生成的时间截必须晚于旧节点，因此租期应大于节点之间可能的时钟偏差。
+ * 使用前需要先初始化 {@link RedisUtils}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisWorkerIdAssigner implements WorkerIdAssigner {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisWorkerIdAssigner.class);
+
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end return 0";
+
+    /**
+     * 仍持有时续期返回 1，键已过期时重新抢占成功返回 2，被他人占用返回 0
+     */
+    private static final String RENEW_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) "
+                    + "if v == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                    + "if not v and redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 2 end "
+                    + "return 0";
+
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0";
+
+    private final String prefix;
+    private final long leaseMillis;
+    private final String owner = IdGenerate.uuid();
+
+    private volatile String key;
+    private volatile long leaseDeadline;
+    private volatile boolean lost;
+    private ScheduledExecutorService heartbeat;
+    private volatile ScheduledFuture<?> renewal;
+
+    /**
+     * 构造函数，租期 30 秒
+     *
+     * @param namespace 命名空间，共用同一套 ID 的节点使用相同的命名空间
+     */
+    public RedisWorkerIdAssigner(String namespace) {
+        this(namespace, 30000);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param namespace   命名空间，共用同一套 ID 的节点使用相同的命名空间
+     * @param leaseMillis 租期（毫秒），节点宕机后经过这么久 ID 才能被复用
+     */
+    public RedisWorkerIdAssigner(String namespace, long leaseMillis) {
+        if (leaseMillis < 30) {
+            throw new IllegalArgumentException("leaseMillis must be at least 30");
+        }
+        this.prefix = "worker:{" + namespace + "}:";
+        this.leaseMillis = leaseMillis;
+    }
+
+    @Override
+    public synchronized long assign(long maxId) {
+        if (key != null) {
+            throw new IllegalStateException("worker id already assigned");
+        }
+        long start = ThreadLocalRandom.current().nextLong(maxId + 1);
+        for (long i = 0; i <= maxId; i++) {
+            long id = (start + i) % (maxId + 1);
+            String candidate = prefix + id;
+            long now = SystemClock.now();
+            Object result = RedisUtils.eval(ACQUIRE_SCRIPT, candidate, owner, String.valueOf(leaseMillis));
+            if (result == null) {
+                throw new IllegalStateException("redis is unavailable, can't assign worker id");
+            }
+            if (Long.valueOf(1).equals(result)) {
+                key = candidate;
+                leaseDeadline = now + leaseMillis;
+                startHeartbeat();
+                logger.info("assigned worker id {} in {}", id, prefix);
+                return id;
+            }
+        }
+        throw new IllegalStateException(String.format("all worker ids from 0 to %d are in use", maxId));
+    }
+
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    private void startHeartbeat() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("worker-id-lease"));
+        long period = leaseMillis / 3;
+        renewal = heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew() {
+        String current = key;
+        if (current == null || lost) {
+            return;
+        }
+        long now = SystemClock.now();
+        Object result;
+        try {
+            result = RedisUtils.eval(RENEW_SCRIPT, current, owner, String.valueOf(leaseMillis));
+        } catch (RuntimeException e) {
+            // 异常会让定时任务不再执行，按 Redis 不可用处理，下个周期继续续期
+            logger.warn("renew worker id lease {}", current, e);
+            result = null;
+        }
+        if (Long.valueOf(1).equals(result)) {
+            leaseDeadline = now + leaseMillis;
+        } else if (Long.valueOf(2).equals(result)) {
+            leaseDeadline = now + leaseMillis;
+            logger.warn("worker id lease {} had expired and was acquired again", current);
+        } else if (result != null) {
+            lost = true;
+            logger.error("worker id lease {} was taken by another node", current);
+            // 租约不可能再恢复，取消续期任务
+            ScheduledFuture<?> task = renewal;
+            if (task != null) {
+                task.cancel(false);
+            }
+        } else if (SystemClock.now() >= leaseDeadline) {
+            logger.error("worker id lease {} expired, redis was unavailable for {} ms", current, leaseMillis);
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        // 续期在发送命令前取时间，租约到期的判断比 Redis 端更早，不会出现 Redis 已过期而本地仍认为有效
+        return key != null && !lost && SystemClock.now() < leaseDeadline;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+            renewal = null;
+        }
+        if (key != null) {
+            RedisUtils.eval(RELEASE_SCRIPT, key, owner);
+            key = null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.dorax.idx;
+
+import org.dorax.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 号段模式的 ID 分配器，生成连续、单调递增的数字 ID
+ * 每次从 {@link SegmentStore} 取得一段长度为 step 的 ID 放在内存中，分配时只做一次原子自增；
+ * 当前号段消耗到一定比例（默认 10%）时在后台线程预取下一个号段，当前号段用完时直接切换，
+ * 正常情况下分配不会等待存储，只有存储的耗时超过消耗完一整段的时间时才会阻塞。
+ * 多个节点共享同一个业务标识时，各节点的 ID 互不重复，整体上趋势递增；进程重启会丢弃未用完的号段，ID 出现空洞。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class SegmentIdAllocator {
+
+    private static Logger logger = LoggerFactory.getLogger(SegmentIdAllocator.class);
+
+    private static final ExecutorService PREFETCH_EXECUTOR =
+            Executors.newCachedThreadPool(new NamedThreadFactory("segment-prefetch"));
+
+    /**
+     * 尚未取得号段时的占位，第一次分配时触发加载
+     */
+    private static final Segment EMPTY = new Segment(1, 0);
+
+    /**
+     * 号段用完时还没有开始预取，之后不再为该号段预取
+     */
+    private static final CompletableFuture<Segment> NO_PREFETCH = CompletableFuture.completedFuture(null);
+
+    private final SegmentStore store;
+    private final String key;
+    private final long step;
+    private volatile double prefetchRatio = 0.1;
+
+    private volatile Segment current = EMPTY;
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param store 号段存储
+     * @param key   业务标识
+     * @param step  每个号段的长度，应大于预取期间的分配量
+     */
+    public SegmentIdAllocator(SegmentStore store, String key, long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be greater than 0");
+        }
+        this.store = store;
+        this.key = key;
+        this.step = step;
+    }
+
+    /**
+     * 获得下一个ID (该方法是线程安全的)
+     *
+     * @return ID
+     * @throws IllegalStateException 当前号段已用完且无法从存储取得新的号段
+     */
+    public long nextId() {
+        while (true) {
+            Segment segment = current;
+            long id = segment.cursor.getAndIncrement();
+            if (id <= segment.max) {
+                if (id - segment.start >= segment.prefetchAt && segment.next.get() == null) {
+                    prefetch(segment);
+                }
+                return id;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 为号段预取下一个号段，结果只挂在该号段上，每个号段最多预取一次
+     *
+     * @param segment 触发预取的号段
+     */
+    private void prefetch(Segment segment) {
+        CompletableFuture<Segment> future = new CompletableFuture<>();
+        if (!segment.next.compareAndSet(null, future)) {
+            return;
+        }
+        try {
+            PREFETCH_EXECUTOR.execute(() -> {
+                try {
+                    future.complete(load());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 当前号段用完，切换到它预取的号段，预取尚未完成时等待，没有预取或预取失败时同步加载
+     *
+     * @param exhausted 用完的号段
+     */
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            // 其他线程已经切换
+            return;
+        }
+        Segment segment = null;
+        // 还没有开始预取时先占位，之后迟到的预取不会再启动，避免浪费一个号段
+        exhausted.next.compareAndSet(null, NO_PREFETCH);
+        CompletableFuture<Segment> future = exhausted.next.get();
+        if (future == NO_PREFETCH || !future.isDone() || future.isCompletedExceptionally()) {
+            blockedCount.increment();
+        }
+        try {
+            segment = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("prefetch segment of {}: ", key, e.getCause());
+        }
+        if (segment == null) {
+            segment = load();
+        }
+        current = segment;
+    }
+
+    private Segment load() {
+        long max = store.nextMax(key, step);
+        loadCount.increment();
+        Segment segment = new Segment(max - step + 1, max);
+        segment.prefetchAt = (long) (step * prefetchRatio);
+        return segment;
+    }
+
+    /**
+     * 设置触发预取的消耗比例
+     *
+     * @param prefetchRatio 0 ~ 1 之间，当前号段消耗到该比例时预取下一个号段，默认 0.1
+     */
+    public void setPrefetchRatio(double prefetchRatio) {
+        if (prefetchRatio < 0 || prefetchRatio > 1) {
+            throw new IllegalArgumentException("prefetchRatio must be between 0 and 1");
+        }
+        this.prefetchRatio = prefetchRatio;
+    }
+
+    /**
+     * 从存储取得号段的次数
+     *
+     * @return 次数
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * 号段用完时下一个号段尚未就绪、分配线程需要等待存储的次数，持续增长说明步长过小
+     *
+     * @return 次数
+     */
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+    private static final class Segment {
+        private final long start;
+        private final long max;
+        private final AtomicLong cursor;
+        private final AtomicReference<CompletableFuture<Segment>> next = new AtomicReference<>();
+        private long prefetchAt;
+
+        Segment(long start, long max) {
+            this.start = start;
+            this.max = max;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
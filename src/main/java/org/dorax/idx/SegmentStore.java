@@ -0,0 +1,21 @@
+package org.dorax.idx;
+
+/**
+ * {@link SegmentIdAllocator} 的号段存储
+ * 每次调用原子地把指定业务的当前最大值增加一个步长，多个节点并发调用时取得的号段互不重叠。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public interface SegmentStore {
+
+    /**
+     * 取得下一个号段
+     *
+     * @param key  业务标识
+     * @param step 步长
+     * @return 号段的最大值（包含），号段为 (返回值 - step, 返回值]
+     * @throws IllegalStateException 存储不可用或业务标识不存在
+     */
+    long nextMax(String key, long step);
+}
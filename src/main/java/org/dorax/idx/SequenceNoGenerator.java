@@ -0,0 +1,206 @@
+package org.dorax.idx;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间生成业务单号，格式为 yyyyMMddHHmmss + 3 位节点号 + 5 位秒内序号，共 22 位数字
+ * 取代 {@link GenerateSequenceUtils}：秒内序号随秒数一起保存在一个 {@link AtomicLong} 中，每秒从 0 开始，
+ * 用 CAS 自增，不加锁；序号用完时等到下一秒，时钟回退时沿用已经用过的最大秒数继续编号，
+ * 回退期间序号用完则直接借用下一秒，不等待时钟追上，单号不会重复。
+ * 格式化好的秒前缀缓存起来，只在秒数变化时重新计算，每次生成只把数字直接写入一个 char[]。
+ * 序号按当地时间的秒计数，夏令时结束时重复的一小时按时钟回退处理，单号同样不会重复；
+ * 默认使用构造时系统时区的固定偏移，不随夏令时切换。
+ * 不同实例（节点）使用不同的节点号即可保证全局不重复。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class SequenceNoGenerator {
+
+    private static final int PREFIX_LENGTH = 14;
+    private static final int NODE_DIGITS = 3;
+    private static final int SEQUENCE_DIGITS = 5;
+    private static final int LENGTH = PREFIX_LENGTH + NODE_DIGITS + SEQUENCE_DIGITS;
+    private static final long MAX_NODE = 999;
+    private static final long MAX_SEQUENCE = 99999;
+    private static final int SEQUENCE_BITS = 17;
+
+    private final char[] node = new char[NODE_DIGITS];
+    private final long nodeId;
+    private final ZoneId zone;
+
+    /**
+     * 时区为固定偏移时的偏移，否则为 null，每次按时间查询偏移
+     */
+    private final ZoneOffset fixedOffset;
+
+    /**
+     * 节点号分配器，手工指定节点号时为 null
+     */
+    private final WorkerIdAssigner assigner;
+
+    /**
+     * 当地时间的秒数 << 17 | 秒内序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private volatile Prefix prefix = new Prefix(-1, new char[PREFIX_LENGTH]);
+
+    /**
+     * 构造函数，使用构造时系统默认时区的偏移
+     *
+     * @param node 节点号 (0~999)
+     */
+    public SequenceNoGenerator(long node) {
+        this(node, systemOffset());
+    }
+
+    /**
+     * 构造函数，从分配器租用节点号，使用构造时系统默认时区的偏移
+     * 租约失效后 {@link #next()} 抛出 {@link IllegalStateException}
+     *
+     * @param assigner 节点号分配器
+     */
+    public SequenceNoGenerator(WorkerIdAssigner assigner) {
+        this(assigner.assign(MAX_NODE), systemOffset(), assigner);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param node 节点号 (0~999)
+     * @param zone 单号中日期时间所用的时区，有夏令时的时区在重复的一小时内按时钟回退处理
+     */
+    public SequenceNoGenerator(long node, ZoneId zone) {
+        this(node, zone, null);
+    }
+
+    private SequenceNoGenerator(long node, ZoneId zone, WorkerIdAssigner assigner) {
+        if (node > MAX_NODE || node < 0) {
+            throw new IllegalArgumentException(String.format("node can't be greater than %d or less than 0", MAX_NODE));
+        }
+        writeDigits(node, this.node, 0, NODE_DIGITS);
+        this.nodeId = node;
+        this.zone = zone;
+        this.fixedOffset = zone.getRules().isFixedOffset()
+                ? zone.getRules().getOffset(Instant.EPOCH) : null;
+        this.assigner = assigner;
+    }
+
+    /**
+     * 生成下一个单号 (该方法是线程安全的)
+     *
+     * @return 单号
+     */
+    public String next() {
+        char[] chars = new char[LENGTH];
+        next(chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 生成下一个单号并写入数组，不产生其他对象 (该方法是线程安全的)
+     *
+     * @param dest   目标数组，从 offset 起至少需要 22 个位置
+     * @param offset 起始位置
+     */
+    public void next(char[] dest, int offset) {
+        checkLease();
+        long next;
+        while (true) {
+            long current = state.get();
+            long now = localSecond(SystemClock.now() / 1000);
+            long stored = current >>> SEQUENCE_BITS;
+            long second = Math.max(now, stored);
+            next = second == stored ? current + 1 : second << SEQUENCE_BITS;
+            if ((next & ((1L << SEQUENCE_BITS) - 1)) > MAX_SEQUENCE) {
+                if (now >= stored) {
+                    // 本秒序号用完，等到下一秒
+                    Thread.yield();
+                    continue;
+                }
+                // 时钟回退期间序号用完，借用下一秒，时钟可能要很久才能追上，不能一直等待
+                next = (stored + 1) << SEQUENCE_BITS;
+            }
+            if (state.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        System.arraycopy(prefix(next >>> SEQUENCE_BITS), 0, dest, offset, PREFIX_LENGTH);
+        System.arraycopy(node, 0, dest, offset + PREFIX_LENGTH, NODE_DIGITS);
+        writeDigits(next & ((1L << SEQUENCE_BITS) - 1), dest, offset + PREFIX_LENGTH + NODE_DIGITS, SEQUENCE_DIGITS);
+    }
+
+    /**
+     * 单号长度
+     *
+     * @return 22
+     */
+    public int length() {
+        return LENGTH;
+    }
+
+    /**
+     * 节点号由分配器租用时，检查租约是否仍然有效
+     */
+    private void checkLease() {
+        if (assigner != null && !assigner.isValid()) {
+            throw new IllegalStateException(String.format("lease of node %d is no longer valid", nodeId));
+        }
+    }
+
+    /**
+     * 把 epoch 秒数换算为当地时间的秒数，同一个当地时间只对应一个值
+     */
+    private long localSecond(long second) {
+        if (fixedOffset != null) {
+            return second + fixedOffset.getTotalSeconds();
+        }
+        return second + zone.getRules().getOffset(Instant.ofEpochSecond(second)).getTotalSeconds();
+    }
+
+    private static ZoneOffset systemOffset() {
+        return ZoneId.systemDefault().getRules().getOffset(Instant.now());
+    }
+
+    private char[] prefix(long second) {
+        Prefix current = prefix;
+        if (current.second == second) {
+            return current.digits;
+        }
+        LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+        char[] digits = new char[PREFIX_LENGTH];
+        writeDigits(time.getYear(), digits, 0, 4);
+        writeDigits(time.getMonthValue(), digits, 4, 2);
+        writeDigits(time.getDayOfMonth(), digits, 6, 2);
+        writeDigits(time.getHour(), digits, 8, 2);
+        writeDigits(time.getMinute(), digits, 10, 2);
+        writeDigits(time.getSecond(), digits, 12, 2);
+        // 并发时可能有多个线程各自计算一次，结果相同，不影响正确性
+        if (second > current.second) {
+            prefix = new Prefix(second, digits);
+        }
+        return digits;
+    }
+
+    private static void writeDigits(long value, char[] dest, int offset, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            dest[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static final class Prefix {
+        private final long second;
+        private final char[] digits;
+
+        Prefix(long second, char[] digits) {
+            this.second = second;
+            this.digits = digits;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.dorax.idx;
+
+import java.util.Arrays;
+
+/**
+ * {@link SnowflakeIdWorker} 生成的 ID 与短字符串之间的转换
+ * 支持 Base62（固定 11 位）和 Crockford Base32（固定 13 位，不区分大小写，不含易混淆的 I、L、O、U）两种编码，
+ * 都在左侧补 0 且字母表按 ASCII 升序排列，编码结果的字典序与 ID 的大小顺序一致，可以直接按字符串排序或建索引。
+ * 编码写入调用方提供的 char[]，解码直接从 {@link CharSequence} 读取，除出错时的异常外都不分配对象。
+ * 同时提供从 ID 中取出时间截、数据中心、机器和序列的方法，便于分析日志和链路。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class SnowflakeIdCodec {
+
+    /**
+     * Base62 编码长度，62^11 > 2^63
+     */
+    public static final int BASE62_LENGTH = 11;
+
+    /**
+     * Crockford Base32 编码长度，32^13 > 2^63
+     */
+    public static final int CROCKFORD_LENGTH = 13;
+
+    /**
+     * 与 {@link SnowflakeIdWorker} 相同的开始时间截和各部分位数
+     */
+    private static final long TWEPOCH = 1420041600000L;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_ID_BITS = 5;
+    private static final int DATACENTER_ID_BITS = 5;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATACENTER_ID_BITS;
+
+    private static final char[] BASE62_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] CROCKFORD_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] BASE62_VALUES = new byte[128];
+    private static final byte[] CROCKFORD_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE62_VALUES, (byte) -1);
+        Arrays.fill(CROCKFORD_VALUES, (byte) -1);
+        for (int i = 0; i < BASE62_DIGITS.length; i++) {
+            BASE62_VALUES[BASE62_DIGITS[i]] = (byte) i;
+        }
+        for (int i = 0; i < CROCKFORD_DIGITS.length; i++) {
+            CROCKFORD_VALUES[CROCKFORD_DIGITS[i]] = (byte) i;
+            CROCKFORD_VALUES[Character.toLowerCase(CROCKFORD_DIGITS[i])] = (byte) i;
+        }
+        // Crockford 规范：I、L 视为 1，O 视为 0
+        CROCKFORD_VALUES['I'] = 1;
+        CROCKFORD_VALUES['i'] = 1;
+        CROCKFORD_VALUES['L'] = 1;
+        CROCKFORD_VALUES['l'] = 1;
+        CROCKFORD_VALUES['O'] = 0;
+        CROCKFORD_VALUES['o'] = 0;
+    }
+
+    private SnowflakeIdCodec() {
+    }
+
+    /**
+     * 编码为 Base62
+     *
+     * @param id SnowflakeId
+     * @return 11 位字符串
+     */
+    public static String toBase62(long id) {
+        char[] chars = new char[BASE62_LENGTH];
+        encodeBase62(id, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 按 Base62 编码写入数组
+     *
+     * @param id     SnowflakeId，不能为负数
+     * @param dest   目标数组，从 offset 起至少需要 11 个位置
+     * @param offset 起始位置
+     */
+    public static void encodeBase62(long id, char[] dest, int offset) {
+        checkId(id);
+        for (int i = offset + BASE62_LENGTH - 1; i >= offset; i--) {
+            dest[i] = BASE62_DIGITS[(int) (id % 62)];
+            id /= 62;
+        }
+    }
+
+    /**
+     * 解码 Base62 字符串
+     *
+     * @param text 11 位字符串
+     * @return SnowflakeId
+     * @throws IllegalArgumentException 长度不对、含有非法字符或超出范围
+     */
+    public static long decodeBase62(CharSequence text) {
+        checkLength(text, BASE62_LENGTH);
+        return decodeBase62(text, 0);
+    }
+
+    /**
+     * 从字符序列的指定位置解码 Base62，便于直接从 URL 路径等较长的字符串中解析
+     *
+     * @param text   字符序列
+     * @param offset 起始位置，从该位置起读取 11 个字符
+     * @return SnowflakeId
+     * @throws IllegalArgumentException 长度不对、含有非法字符或超出范围
+     */
+    public static long decodeBase62(CharSequence text, int offset) {
+        return decode(text, offset, BASE62_LENGTH, 62, BASE62_VALUES);
+    }
+
+    /**
+     * 编码为 Crockford Base32
+     *
+     * @param id SnowflakeId
+     * @return 13 位字符串
+     */
+    public static String toCrockford(long id) {
+        char[] chars = new char[CROCKFORD_LENGTH];
+        encodeCrockford(id, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 按 Crockford Base32 编码写入数组，使用大写字母
+     *
+     * @param id     SnowflakeId，不能为负数
+     * @param dest   目标数组，从 offset 起至少需要 13 个位置
+     * @param offset 起始位置
+     */
+    public static void encodeCrockford(long id, char[] dest, int offset) {
+        checkId(id);
+        for (int i = offset + CROCKFORD_LENGTH - 1; i >= offset; i--) {
+            dest[i] = CROCKFORD_DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+    }
+
+    /**
+     * 解码 Crockford Base32 字符串，不区分大小写
+     *
+     * @param text 13 位字符串
+     * @return SnowflakeId
+     * @throws IllegalArgumentException 长度不对、含有非法字符或超出范围
+     */
+    public static long decodeCrockford(CharSequence text) {
+        checkLength(text, CROCKFORD_LENGTH);
+        return decodeCrockford(text, 0);
+    }
+
+    /**
+     * 从字符序列的指定位置解码 Crockford Base32
+     *
+     * @param text   字符序列
+     * @param offset 起始位置，从该位置起读取 13 个字符
+     * @return SnowflakeId
+     * @throws IllegalArgumentException 长度不对、含有非法字符或超出范围
+     */
+    public static long decodeCrockford(CharSequence text, int offset) {
+        return decode(text, offset, CROCKFORD_LENGTH, 32, CROCKFORD_VALUES);
+    }
+
+    /**
+     * 生成时间(毫秒)
+     *
+     * @param id SnowflakeId
+     * @return 自 1970-01-01 起的毫秒数
+     */
+    public static long timestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + TWEPOCH;
+    }
+
+    /**
+     * 数据中心ID
+     *
+     * @param id SnowflakeId
+     * @return 数据中心ID (0~31)
+     */
+    public static long datacenterId(long id) {
+        return (id >>> (SEQUENCE_BITS + WORKER_ID_BITS)) & ((1L << DATACENTER_ID_BITS) - 1);
+    }
+
+    /**
+     * 工作机器ID
+     *
+     * @param id SnowflakeId
+     * @return 工作机器ID (0~31)
+     */
+    public static long workerId(long id) {
+        return (id >>> SEQUENCE_BITS) & ((1L << WORKER_ID_BITS) - 1);
+    }
+
+    /**
+     * 毫秒内序列
+     *
+     * @param id SnowflakeId
+     * @return 序列 (0~4095)
+     */
+    public static long sequence(long id) {
+        return id & ((1L << SEQUENCE_BITS) - 1);
+    }
+
+    private static void checkId(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id can't be less than 0: " + id);
+        }
+    }
+
+    private static void checkLength(CharSequence text, int length) {
+        if (text.length() != length) {
+            throw new IllegalArgumentException(String.format("expected %d characters: %s", length, text));
+        }
+    }
+
+    private static long decode(CharSequence text, int offset, int length, int radix, byte[] values) {
+        if (offset < 0 || text.length() - offset < length) {
+            throw new IllegalArgumentException(String.format("expected %d characters at %d: %s", length, offset, text));
+        }
+        long limit = Long.MAX_VALUE / radix;
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text.charAt(i);
+            int digit = c < 128 ? values[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException(String.format("illegal character '%c' at %d: %s", c, i, text));
+            }
+            if (value > limit || value * radix > Long.MAX_VALUE - digit) {
+                throw new IllegalArgumentException("id out of range: " + text);
+            }
+            value = value * radix + digit;
+        }
+        return value;
+    }
+}
@@ -1,5 +1,8 @@
 package org.dorax.idx;
 
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Twitter_Snowflake
  * SnowFlake的结构如下(每部分用-分开):
@@ -10,6 +13,7 @@ package org.dorax.idx;
  * 10位的数据机器位，可以部署在1024个节点，包括5位datacenterId和5位workerId
  * 12位序列，毫秒内的计数，12位的计数顺序号支持每个节点每毫秒(同一机器，同一时间截)产生4096个ID序号
  * 加起来刚好64位，为一个Long型。
+ * 系统时钟回退时按 {@link #setClockBackwardsTolerance(long, long)} 的设置等待、沿用上次的时间截或抛出异常。
  * SnowFlake的优点是，整体上按照时间自增排序，并且整个分布式系统内不会产生ID碰撞(由数据中心ID和机器ID作区分)，并且效率较高，经测试，SnowFlake每秒能够产生26万ID左右。
  *
  * @author wuchunfu
@@ -17,6 +21,11 @@ package org.dorax.idx;
  */
 public class SnowflakeIdWorker {
 
+    /**
+     * 数据中心ID与工作ID合计 10 位，最大节点ID为 1023
+     */
+    private static final long MAX_NODE_ID = (1L << 10) - 1;
+
     /**
      * 开始时间截 (2015-01-01)
      */
@@ -45,7 +54,7 @@ public class SnowflakeIdWorker {
     /**
      * 序列在id中占的位数
      */
-    private final long sequenceBits = 12L;
+    protected final long sequenceBits = 12L;
 
     /**
      * 机器ID向左移12位
@@ -65,7 +74,7 @@ public class SnowflakeIdWorker {
     /**
      * 生成序列的掩码，这里为4095 (0b111111111111=0xfff=4095)
      */
-    private final long sequenceMask = -1L ^ (-1L << sequenceBits);
+    protected final long sequenceMask = -1L ^ (-1L << sequenceBits);
 
     /**
      * 工作机器ID(0~31)
@@ -87,6 +96,26 @@ public class SnowflakeIdWorker {
      */
     private long lastTimestamp = -1L;
 
+    /**
+     * 时钟回退不超过该值(毫秒)时等待时钟追上
+     */
+    private volatile long maxWaitMillis = 5L;
+
+    /**
+     * 时钟回退不超过该值(毫秒)时沿用上次的时间截继续分配序列，超过时抛出异常
+     */
+    private volatile long maxBorrowMillis = 1000L;
+
+    private final LongAdder clockWaitCount = new LongAdder();
+    private final LongAdder clockBorrowCount = new LongAdder();
+    private final LongAdder clockRejectCount = new LongAdder();
+    private final LongAccumulator maxClockBackwardsMillis = new LongAccumulator(Long::max, 0);
+
+    /**
+     * 节点ID分配器，手工指定ID时为 null
+     */
+    private final WorkerIdAssigner assigner;
+
     /**
      * 构造函数
      *
@@ -94,6 +123,24 @@ public class SnowflakeIdWorker {
      * @param datacenterId 数据中心ID (0~31)
      */
     public SnowflakeIdWorker(long workerId, long datacenterId) {
+        this(workerId, datacenterId, null);
+    }
+
+    /**
+     * 构造函数，从分配器租用一个 10 位的节点ID，高 5 位作为数据中心ID，低 5 位作为工作ID
+     * 租约失效后 {@link #nextId()} 抛出 {@link IllegalStateException}
+     *
+     * @param assigner 节点ID分配器
+     */
+    public SnowflakeIdWorker(WorkerIdAssigner assigner) {
+        this(assigner, assigner.assign(MAX_NODE_ID));
+    }
+
+    private SnowflakeIdWorker(WorkerIdAssigner assigner, long nodeId) {
+        this(nodeId & 31, nodeId >>> 5, assigner);
+    }
+
+    private SnowflakeIdWorker(long workerId, long datacenterId, WorkerIdAssigner assigner) {
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
         }
@@ -102,6 +149,7 @@ public class SnowflakeIdWorker {
         }
         this.workerId = workerId;
         this.datacenterId = datacenterId;
+        this.assigner = assigner;
     }
 
     /**
@@ -110,10 +158,11 @@ public class SnowflakeIdWorker {
      * @return SnowflakeId
      */
     public synchronized long nextId() {
+        checkLease();
         long timestamp = timeGen();
-        // 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过这个时候应当抛出异常
+        // 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过，按回退的幅度等待、借用或抛出异常
         if (timestamp < lastTimestamp) {
-            throw new RuntimeException( String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+            timestamp = clockBackwards(timestamp, lastTimestamp);
         }
         // 如果是同一时间生成的，则进行毫秒内序列
         if (lastTimestamp == timestamp) {
@@ -121,7 +170,7 @@ public class SnowflakeIdWorker {
             // 毫秒内序列溢出
             if (sequence == 0) {
                 // 阻塞到下一个毫秒,获得新的时间戳
-                timestamp = tilNextMillis(lastTimestamp);
+                timestamp = nextMillis(lastTimestamp);
             }
         } else {
             // 时间戳改变，毫秒内序列重置
@@ -129,13 +178,199 @@ public class SnowflakeIdWorker {
         }
         // 上次生成ID的时间截
         lastTimestamp = timestamp;
-        // 移位并通过或运算拼到一起组成64位的ID
+        return compose(timestamp, sequence);
+    }
+
+    /**
+     * 批量获得ID
+     *
+     * @param count 数量
+     * @return SnowflakeId 数组
+     */
+    public long[] nextIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count can't be less than 0");
+        }
+        long[] ids = new long[count];
+        nextIds(ids);
+        return ids;
+    }
+
+    /**
+     * 批量获得ID并填充到数组中 (该方法是线程安全的)
+     * 整批只加一次锁、只读一次时钟，毫秒内序列用完时才阻塞到下一个毫秒，生成的ID与逐个调用 {@link #nextId()} 相同
+     *
+     * @param dest 填充ID的数组
+     */
+    public synchronized void nextIds(long[] dest) {
+        if (dest.length == 0) {
+            return;
+        }
+        checkLease();
+        long timestamp = timeGen();
+        if (timestamp < lastTimestamp) {
+            timestamp = clockBackwards(timestamp, lastTimestamp);
+        }
+        if (lastTimestamp == timestamp) {
+            sequence = (sequence + 1) & sequenceMask;
+            if (sequence == 0) {
+                timestamp = nextMillis(lastTimestamp);
+            }
+        } else {
+            sequence = 0L;
+        }
+        long base = compose(timestamp, 0);
+        dest[0] = base | sequence;
+        for (int i = 1; i < dest.length; i++) {
+            sequence = (sequence + 1) & sequenceMask;
+            if (sequence == 0) {
+                timestamp = nextMillis(timestamp);
+                base = compose(timestamp, 0);
+            }
+            dest[i] = base | sequence;
+        }
+        lastTimestamp = timestamp;
+    }
+
+    /**
+     * 移位并通过或运算拼到一起组成64位的ID
+     *
+     * @param timestamp 时间截(毫秒)
+     * @param sequence  毫秒内序列
+     * @return SnowflakeId
+     */
+    protected long compose(long timestamp, long sequence) {
         return ((timestamp - twepoch) << timestampLeftShift)
                 | (datacenterId << datacenterIdShift)
                 | (workerId << workerIdShift)
                 | sequence;
     }
 
+    /**
+     * 节点ID由分配器租用时，检查租约是否仍然有效
+     */
+    protected void checkLease() {
+        if (assigner != null && !assigner.isValid()) {
+            throw new IllegalStateException(String.format("lease of worker id %d-%d is no longer valid", datacenterId, workerId));
+        }
+    }
+
+    /**
+     * 工作ID
+     *
+     * @return 工作ID
+     */
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 数据中心ID
+     *
+     * @return 数据中心ID
+     */
+    public long getDatacenterId() {
+        return datacenterId;
+    }
+
+    /**
+     * 处理时钟回退：回退不超过 maxWaitMillis 时等待时钟追上；不超过 maxBorrowMillis 时沿用上次的时间截，
+     * 在其后继续分配序列（ID 仍然单调递增且不重复，只是暂时领先于回退后的时钟）；超过时抛出异常
+     *
+     * @param timestamp     当前时间
+     * @param lastTimestamp 已经分配到的时间截
+     * @return 本次使用的时间截
+     */
+    protected long clockBackwards(long timestamp, long lastTimestamp) {
+        long offset = lastTimestamp - timestamp;
+        maxClockBackwardsMillis.accumulate(offset);
+        if (offset <= maxWaitMillis) {
+            clockWaitCount.increment();
+            return tilNextMillis(lastTimestamp - 1);
+        }
+        if (offset <= maxBorrowMillis) {
+            clockBorrowCount.increment();
+            return lastTimestamp;
+        }
+        clockRejectCount.increment();
+        throw new RuntimeException( String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", offset));
+    }
+
+    /**
+     * 毫秒内序列溢出时取得下一个时间截：时钟正常时阻塞到下一个毫秒；
+     * 时钟回退期间在借用范围内直接使用下一个毫秒，不等待落后的时钟
+     *
+     * @param lastTimestamp 上次生成ID的时间截
+     * @return 下一个时间截
+     */
+    protected long nextMillis(long lastTimestamp) {
+        long timestamp = timeGen();
+        if (timestamp < lastTimestamp && lastTimestamp + 1 - timestamp <= maxBorrowMillis) {
+            clockBorrowCount.increment();
+            return lastTimestamp + 1;
+        }
+        return tilNextMillis(lastTimestamp);
+    }
+
+    /**
+     * 设置时钟回退的容忍度，两者都为 0 时与最初的行为相同，任何回退都抛出异常
+     *
+     * @param maxWaitMillis   回退不超过该值(毫秒)时等待时钟追上，默认 5
+     * @param maxBorrowMillis 回退不超过该值(毫秒)时沿用上次的时间截继续生成，默认 1000，超过时抛出异常
+     */
+    public void setClockBackwardsTolerance(long maxWaitMillis, long maxBorrowMillis) {
+        if (maxWaitMillis < 0 || maxBorrowMillis < 0) {
+            throw new IllegalArgumentException("maxWaitMillis and maxBorrowMillis can't be less than 0");
+        }
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxBorrowMillis = maxBorrowMillis;
+    }
+
+    /**
+     * 时钟回退后等待时钟追上的次数
+     *
+     * @return 次数
+     */
+    public long getClockWaitCount() {
+        return clockWaitCount.sum();
+    }
+
+    /**
+     * 时钟回退期间沿用上次时间截生成的次数
+     *
+     * @return 次数
+     */
+    public long getClockBorrowCount() {
+        return clockBorrowCount.sum();
+    }
+
+    /**
+     * 时钟回退过大而抛出异常的次数
+     *
+     * @return 次数
+     */
+    public long getClockRejectCount() {
+        return clockRejectCount.sum();
+    }
+
+    /**
+     * 观察到的最大时钟回退幅度
+     *
+     * @return 毫秒
+     */
+    public long getMaxClockBackwardsMillis() {
+        return maxClockBackwardsMillis.get();
+    }
+
+    /**
+     * 借用范围，供子类判断领先于时钟的时间截是否可以直接返回
+     *
+     * @return 毫秒
+     */
+    protected long getMaxBorrowMillis() {
+        return maxBorrowMillis;
+    }
+
     /**
      * 阻塞到下一个毫秒，直到获得新的时间戳
      *
@@ -1,10 +1,9 @@
 package org.dorax.idx;
 
 import java.sql.Timestamp;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 高并发场景下System.currentTimeMillis()的性能问题的优化
@@ -15,42 +14,100 @@ import java.util.concurrent.atomic.AtomicLong;
  * 1亿：4699,29,162.0344827586207%
  * 1000万：480,12,40.0%
  * 100万：50,10,5.0%
+ * <p>
+ * 更新周期默认 1 毫秒，可以通过系统属性 dorax.clock.periodMicros 以微秒为单位设置，读到的值最多滞后一个周期。
+ * 自适应模式（默认开启，系统属性 dorax.clock.adaptive=false 关闭）下，一秒内没有任何读取时更新线程挂起，
+ * 空闲的服务不再每毫秒唤醒一次；挂起后的第一次读取直接取系统时间并唤醒更新线程，不会读到过期的值。
+ * 除墙上时钟外还提供以 System.nanoTime() 为基准的单调时钟：启动时与墙上时钟对齐，之后只随 nanoTime 前进，
+ * 不受 NTP 校时或手工调整系统时间的影响，永不回退，适合计算时间间隔和需要单调递增的时间截。
  *
  * @author wuchunfu
  * @date 2019-12-28
  */
 public class SystemClock {
 
-    private final long period;
+    private static final long IDLE_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long periodNanos;
+    private final boolean adaptive;
     private final AtomicLong now;
+    private final long anchorMillis;
+    private final long anchorNanos;
+    private volatile long monotonicNow;
+    private volatile boolean touched;
+    private volatile boolean sleeping;
+    private final Thread updater;
 
-    private SystemClock(long period) {
-        this.period = period;
-        this.now = new AtomicLong(System.currentTimeMillis());
-        scheduleClockUpdating();
+    private SystemClock(long periodNanos, boolean adaptive) {
+        this.periodNanos = periodNanos;
+        this.adaptive = adaptive;
+        this.anchorNanos = System.nanoTime();
+        this.anchorMillis = System.currentTimeMillis();
+        this.now = new AtomicLong(anchorMillis);
+        this.monotonicNow = anchorMillis;
+        this.updater = new Thread(this::run, "System Clock");
+        this.updater.setDaemon(true);
+        this.updater.start();
     }
 
     private static class InstanceHolder {
-        public static final SystemClock INSTANCE = new SystemClock(1);
+        public static final SystemClock INSTANCE = new SystemClock(
+                TimeUnit.MICROSECONDS.toNanos(Math.max(1, Long.getLong("dorax.clock.periodMicros", 1000))),
+                !"false".equals(System.getProperty("dorax.clock.adaptive")));
     }
 
     private static SystemClock instance() {
         return InstanceHolder.INSTANCE;
     }
 
-    private void scheduleClockUpdating() {
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
-            Thread thread = new Thread(runnable, "System Clock");
-            thread.setDaemon(true);
-            return thread;
-        });
-        scheduler.scheduleAtFixedRate(() -> now.set(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    private void run() {
+        long idleTicks = Math.max(1, IDLE_CHECK_NANOS / periodNanos);
+        long ticks = 0;
+        while (true) {
+            update();
+            LockSupport.parkNanos(this, periodNanos);
+            if (adaptive && ++ticks >= idleTicks) {
+                ticks = 0;
+                if (!touched) {
+                    sleeping = true;
+                    // 读取方先更新时钟再清除标记并唤醒，先于 park 的唤醒不会丢失
+                    while (sleeping) {
+                        LockSupport.park(this);
+                    }
+                }
+                touched = false;
+            }
+        }
+    }
+
+    private void update() {
+        now.set(System.currentTimeMillis());
+        monotonicNow = anchorMillis + (System.nanoTime() - anchorNanos) / 1000000;
+    }
+
+    /**
+     * 每次读取前调用：更新线程挂起时唤醒它，否则只在每个空闲检查周期的第一次读取时写一次标记，避免读线程之间争用缓存行
+     */
+    private void touch() {
+        if (sleeping) {
+            update();
+            sleeping = false;
+            LockSupport.unpark(updater);
+        } else if (!touched) {
+            touched = true;
+        }
     }
 
     private long currentTimeMillis() {
+        touch();
         return now.get();
     }
 
+    private long monotonicMillis() {
+        touch();
+        return monotonicNow;
+    }
+
     public static long now() {
         return instance().currentTimeMillis();
     }
@@ -58,4 +115,32 @@ public class SystemClock {
     public static String nowDate() {
         return new Timestamp(instance().currentTimeMillis()).toString();
     }
+
+    /**
+     * 单调时钟的当前毫秒数，与 {@link #now()} 一样由后台线程更新，读取开销相同
+     *
+     * @return 自 1970-01-01 起的毫秒数（启动时对齐）
+     */
+    public static long monotonicNow() {
+        return instance().monotonicMillis();
+    }
+
+    /**
+     * 单调时钟的当前微秒数，每次调用读取 System.nanoTime()，没有滞后
+     *
+     * @return 自 1970-01-01 起的微秒数（启动时对齐）
+     */
+    public static long monotonicMicros() {
+        return monotonicNanos() / 1000;
+    }
+
+    /**
+     * 单调时钟的当前纳秒数，每次调用读取 System.nanoTime()，没有滞后
+     *
+     * @return 自 1970-01-01 起的纳秒数（启动时对齐）
+     */
+    public static long monotonicNanos() {
+        SystemClock clock = instance();
+        return clock.anchorMillis * 1000000 + (System.nanoTime() - clock.anchorNanos);
+    }
 }
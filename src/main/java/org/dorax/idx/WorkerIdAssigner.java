@@ -0,0 +1,36 @@
+package org.dorax.idx;
+
+import java.io.Closeable;
+
+/**
+ * Snowflake 节点 ID 的分配器
+ * 节点启动时从共享的登记处租用一个未被占用的 ID，进程存活期间一直持有，进程退出或失联后由登记处回收。
+ * 单机部署使用 {@link FileWorkerIdAssigner}，多机部署使用 {@link RedisWorkerIdAssigner}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public interface WorkerIdAssigner extends Closeable {
+
+    /**
+     * 租用一个 0 ~ maxId 之间未被占用的 ID，同一个分配器只能租用一次
+     *
+     * @param maxId 最大 ID（包含）
+     * @return ID
+     * @throws IllegalStateException 所有 ID 都已被占用
+     */
+    long assign(long maxId);
+
+    /**
+     * 租约是否仍然有效，失效后其他节点可能已经取得同一个 ID，不能再用它生成 ID
+     *
+     * @return 是否有效
+     */
+    boolean isValid();
+
+    /**
+     * 归还租用的 ID
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,183 @@
+package org.dorax.jvm;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders collapsed stacks as a flame graph: a single HTML page with an
+ * inline SVG and a few lines of script, so it can be opened in a browser or
+ * attached to an incident ticket without any other files.
+ * <p>
+ * Each box is a frame; its width is the weight of the samples that passed
+ * through it, and the frames it called are stacked on top of it, sorted by
+ * name. Hovering a box shows its full name and weight, clicking it zooms in,
+ * and clicking the bottom box zooms out again.
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class FlameGraph {
+
+    private static final int WIDTH = 1200;
+    private static final int FRAME_HEIGHT = 16;
+    private static final int CHAR_WIDTH = 7;
+
+    /**
+     * Boxes narrower than this (in pixels) are not drawn
+     */
+    private static final double MIN_WIDTH = 0.1;
+
+    private final Node root = new Node("all");
+    private int maxDepth;
+
+    /**
+     * Add a stack.
+     *
+     * @param frames the frames, outermost (caller) first
+     * @param weight the weight of the samples
+     */
+    void add(String[] frames, long weight) {
+        Node node = root;
+        node.weight += weight;
+        for (String frame : frames) {
+            Node child = node.children.get(frame);
+            if (child == null) {
+                child = new Node(frame);
+                node.children.put(frame, child);
+            }
+            child.weight += weight;
+            node = child;
+        }
+        maxDepth = Math.max(maxDepth, frames.length);
+    }
+
+    /**
+     * Render the flame graph.
+     *
+     * @param title the title of the page
+     * @param unit  the unit of the weights, for example "samples"
+     * @return the HTML page
+     */
+    String toHtml(String title, String unit) {
+        int height = (maxDepth + 1) * FRAME_HEIGHT;
+        StringBuilder buff = new StringBuilder();
+        buff.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>");
+        escape(buff, title);
+        buff.append("</title>\n<style>\n").
+                append("body{margin:8px;font:12px Verdana,sans-serif}\n").
+                append("svg{display:block}\n").
+                append("g{cursor:pointer}\n").
+                append("rect{stroke:#fff;stroke-width:.5}\n").
+                append("g:hover rect{stroke:#000}\n").
+                append("text{font:11px Verdana,sans-serif;pointer-events:none}\n").
+                append("</style>\n</head>\n<body>\n<h3>");
+        escape(buff, title);
+        buff.append("</h3>\n<svg id=\"flame\" xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(WIDTH).
+                append("\" height=\"").append(height).append("\">\n");
+        appendNode(buff, root, 0, 0, unit, height);
+        buff.append("</svg>\n<script>\n").
+                append("var W=").append(WIDTH).append(";\n").
+                append("function fit(s,w){var n=Math.floor((w-6)/").append(CHAR_WIDTH).
+                append(");return n<3?'':s.length<=n?s:s.substring(0,n-2)+'..';}\n").
+                append("function zoom(z){var x0=+z.getAttribute('data-x'),w0=+z.getAttribute('data-w'),").
+                append("d0=+z.getAttribute('data-d'),e=1e-9;\n").
+                append(" Array.prototype.forEach.call(document.querySelectorAll('#flame g'),function(g){\n").
+                append("  var x=+g.getAttribute('data-x'),w=+g.getAttribute('data-w'),d=+g.getAttribute('data-d');\n").
+                append("  var up=d<d0,show=up?x<=x0+e&&x+w>=x0+w0-e:x>=x0-e&&x+w<=x0+w0+e;\n").
+                append("  g.style.display=show?'':'none';if(!show)return;\n").
+                append("  var nx=up?0:(x-x0)/w0*W,nw=up?W:w/w0*W,r=g.querySelector('rect'),t=g.querySelector('text'),").
+                append("s=g.querySelector('title').textContent;\n").
+                append("  r.setAttribute('x',nx);r.setAttribute('width',nw);t.setAttribute('x',nx+3);\n").
+                append("  t.textContent=fit(s.substring(0,s.lastIndexOf(' (')),nw);});}\n").
+                append("Array.prototype.forEach.call(document.querySelectorAll('#flame g'),function(g){").
+                append("g.onclick=function(){zoom(g);};});\n").
+                append("</script>\n</body>\n</html>\n");
+        return buff.toString();
+    }
+
+    /**
+     * Append a box and the boxes of its children.
+     *
+     * @param x      the left edge, as a fraction of the total weight
+     * @param height the height of the image
+     */
+    private void appendNode(StringBuilder buff, Node node, int depth, double x, String unit, int height) {
+        double w = root.weight == 0 ? 1 : (double) node.weight / root.weight;
+        double px = w * WIDTH;
+        if (px < MIN_WIDTH) {
+            return;
+        }
+        int y = height - (depth + 1) * FRAME_HEIGHT;
+        buff.append("<g data-x=\"").append(x).append("\" data-w=\"").append(w).
+                append("\" data-d=\"").append(depth).append("\"><title>");
+        escape(buff, node.name);
+        buff.append(" (").append(node.weight).append(' ').append(unit).append(", ").
+                append(String.format(Locale.ROOT, "%.2f", w * 100)).append("%)</title>");
+        buff.append("<rect x=\"").append(String.format(Locale.ROOT, "%.2f", x * WIDTH)).
+                append("\" y=\"").append(y).
+                append("\" width=\"").append(String.format(Locale.ROOT, "%.2f", px)).
+                append("\" height=\"").append(FRAME_HEIGHT - 1).
+                append("\" fill=\"").append(color(node.name)).append("\"/>");
+        buff.append("<text x=\"").append(String.format(Locale.ROOT, "%.2f", x * WIDTH + 3)).
+                append("\" y=\"").append(y + FRAME_HEIGHT - 4).append("\">");
+        escape(buff, fit(node.name, px));
+        buff.append("</text></g>\n");
+        for (Node child : node.children.values()) {
+            appendNode(buff, child, depth + 1, x, unit, height);
+            x += (double) child.weight / root.weight;
+        }
+    }
+
+    private static String fit(String name, double width) {
+        int n = (int) ((width - 6) / CHAR_WIDTH);
+        if (n < 3) {
+            return "";
+        }
+        return name.length() <= n ? name : name.substring(0, n - 2) + "..";
+    }
+
+    /**
+     * A warm color that depends only on the name, so that a frame has the
+     * same color in every graph.
+     */
+    private static String color(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        int r = 205 + (h >>> 27);
+        int g = 90 + ((h >>> 19) & 0x7F);
+        int b = 40 + ((h >>> 12) & 0x3F);
+        return "rgb(" + r + "," + g + "," + b + ")";
+    }
+
+    private static void escape(StringBuilder buff, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    buff.append("&amp;");
+                    break;
+                case '<':
+                    buff.append("&lt;");
+                    break;
+                case '>':
+                    buff.append("&gt;");
+                    break;
+                case '"':
+                    buff.append("&quot;");
+                    break;
+                default:
+                    buff.append(c);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Map<String, Node> children = new TreeMap<String, Node>();
+        private long weight;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.dorax.jvm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Assigns a small integer id to each distinct stack frame, so that sampled
+ * stacks can be kept as int arrays. The id of a frame does not change until
+ * the table is cleared. The text of a frame is only built when it is first
+ * needed for a report.
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class FrameTable {
+
+    private final HashMap<StackTraceElement, Integer> ids = new HashMap<StackTraceElement, Integer>();
+    private StackTraceElement[] frames = new StackTraceElement[256];
+    private String[] names = new String[256];
+    private int size;
+
+    /**
+     * Get the id of a frame, adding it if it was not seen before.
+     *
+     * @param frame the frame
+     * @return the id (0, 1, 2,... in the order frames are added)
+     */
+    int intern(StackTraceElement frame) {
+        Integer id = ids.get(frame);
+        if (id != null) {
+            return id;
+        }
+        if (size == frames.length) {
+            frames = Arrays.copyOf(frames, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        frames[size] = frame;
+        ids.put(frame, size);
+        return size++;
+    }
+
+    /**
+     * Remove all frames, so that ids are assigned from 0 again.
+     */
+    void clear() {
+        ids.clear();
+        frames = new StackTraceElement[256];
+        names = new String[256];
+        size = 0;
+    }
+
+    /**
+     * Get the number of distinct frames.
+     *
+     * @return the number of frames
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the text of a frame, in the format StackTraceElement.toString() uses
+     * in Java 8, without module or class loader names.
+     *
+     * @param id the id
+     * @return the text, for example "org.dorax.jvm.Profiler.run(Profiler.java:12)"
+     */
+    String getName(int id) {
+        String name = names[id];
+        if (name == null) {
+            StackTraceElement e = frames[id];
+            StringBuilder buff = new StringBuilder();
+            buff.append(e.getClassName()).append('.').append(e.getMethodName()).append('(');
+            if (e.isNativeMethod()) {
+                buff.append("Native Method");
+            } else if (e.getFileName() == null) {
+                buff.append("Unknown Source");
+            } else {
+                buff.append(e.getFileName());
+                if (e.getLineNumber() >= 0) {
+                    buff.append(':').append(e.getLineNumber());
+                }
+            }
+            name = buff.append(')').toString();
+            names[id] = name;
+        }
+        return name;
+    }
+}
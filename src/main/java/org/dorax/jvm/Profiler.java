@@ -10,10 +10,15 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +26,20 @@ import java.util.Map;
  * A simple CPU profiling tool similar to java -Xrunhprof. It can be used
  * in-process (to profile the current application) or as a standalone program
  * (to profile a different process, or files containing full thread dumps).
+ * <p>
+ * With {@link #lowOverhead} set, in-process profiling uses a sampling engine
+ * that is cheap enough to leave running in production: stacks are read with
+ * {@link ThreadMXBean#getThreadInfo(long[], int)}, each distinct frame is
+ * interned once into an integer id, and a sample is a walk down a trie of
+ * frame ids that does not allocate for known stacks. Text is only built when a
+ * report is requested.
+ * <p>
+ * By default every sample of a RUNNABLE thread counts as one. With
+ * {@link #weight} set to {@link Weight#CPU} or {@link Weight#ALLOCATION}, each
+ * thread that used CPU or allocated memory since the previous sample is
+ * sampled regardless of its state, and its stack is weighted by the
+ * nanoseconds or bytes. This separates threads that burn CPU from threads that
+ * only look busy, and shows where garbage is created.
  *
  * @author wuchunfu
  * @date 2020-01-10
@@ -30,6 +49,11 @@ public class Profiler implements Runnable {
     private static Instrumentation instrumentation;
     private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
     private static final int MAX_ELEMENTS = 1000;
+    private static final int MAX_STACK_NODES = 100000;
+
+    private static final byte IGNORE_LINE = 1;
+    private static final byte IGNORE_PACKAGE = 2;
+    private static final byte IGNORE_THREAD = 4;
 
     public int interval = 2;
     public int depth = 48;
@@ -37,6 +61,19 @@ public class Profiler implements Runnable {
     public boolean sumClasses;
     public boolean sumMethods;
 
+    /**
+     * Whether to use the low-overhead sampling engine for in-process
+     * profiling. In this mode, depth is the number of frames read per thread,
+     * before ignored frames are removed.
+     */
+    public boolean lowOverhead;
+
+    /**
+     * What a sampled stack is weighted by. Anything other than samples uses
+     * the low-overhead engine, and must be set before collecting starts.
+     */
+    public Weight weight = Weight.SAMPLES;
+
     private int pid;
 
     private final String[] ignoreLines = (
@@ -77,20 +114,43 @@ public class Profiler implements Runnable {
     ).split(",");
 
     private volatile boolean stop;
-    private final HashMap<String, Integer> counts = new HashMap<String, Integer>();
+    private final HashMap<String, Long> counts = new HashMap<String, Long>();
 
     /**
      * The summary (usually one entry per package, unless sumClasses is enabled,
      * in which case it's one entry per class).
      */
-    private final HashMap<String, Integer> summary = new HashMap<String, Integer>();
+    private final HashMap<String, Long> summary = new HashMap<String, Long>();
     private int minCount = 1;
-    private int total;
+    private long total;
     private Thread thread;
     private long start;
     private long time;
     private int threadDumps;
 
+    private final FrameTable frames = new FrameTable();
+    private final StackTrie stacks = new StackTrie(MAX_STACK_NODES);
+
+    /**
+     * The IGNORE_* flags of each frame id
+     */
+    private byte[] frameFlags = new byte[256];
+    private int flaggedFrames;
+
+    /**
+     * The summary of the low-overhead engine, by the frame id the group name
+     * is taken from
+     */
+    private long[] groupWeights = new long[256];
+    private int[] stackBuffer = new int[0];
+
+    /**
+     * The CPU time or allocated bytes of each thread at the previous sample,
+     * sorted by thread id
+     */
+    private long[] lastThreadIds;
+    private long[] lastThreadValues;
+
     /**
      * This method is called when the agent is installed.
      *
@@ -113,7 +173,7 @@ public class Profiler implements Runnable {
     private void run(String... args) {
         if (args.length == 0) {
             System.out.println("Show profiling data");
-            System.out.println("Usage: java " + getClass().getName() + " <pid> | <stackTraceFileNames>");
+            System.out.println("Usage: java " + getClass().getName() + " <pid> | [-collapsed | -flamegraph] <stackTraceFileNames>");
             System.out.println("Processes:");
             String processes = exec("jps", "-l");
             System.out.println(processes);
@@ -133,6 +193,7 @@ public class Profiler implements Runnable {
                 }
             }
         }
+        String format = "top";
         try {
             for (String arg : args) {
                 if (arg.startsWith("-")) {
@@ -147,6 +208,10 @@ public class Profiler implements Runnable {
                             sumClasses = false;
                             sumMethods = false;
                             break;
+                        case "-collapsed":
+                        case "-flamegraph":
+                            format = arg;
+                            break;
                         default:
                             throw new IllegalArgumentException(arg);
                     }
@@ -170,7 +235,13 @@ public class Profiler implements Runnable {
                 processList(readStackTrace(r));
                 reader.close();
             }
-            System.out.println(getTopTraces(5));
+            if ("-collapsed".equals(format)) {
+                System.out.print(getCollapsedStacks());
+            } else if ("-flamegraph".equals(format)) {
+                System.out.print(getFlameGraph(String.join(" ", args)));
+            } else {
+                System.out.println(getTopTraces(5));
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -291,6 +362,24 @@ public class Profiler implements Runnable {
      * @return this
      */
     public Profiler startCollecting() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (weight == Weight.CPU) {
+            if (!threadMXBean.isThreadCpuTimeSupported()) {
+                throw new UnsupportedOperationException("Thread CPU time is not supported by this JVM");
+            }
+            if (!threadMXBean.isThreadCpuTimeEnabled()) {
+                threadMXBean.setThreadCpuTimeEnabled(true);
+            }
+        } else if (weight == Weight.ALLOCATION) {
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+                    || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+                throw new UnsupportedOperationException("Thread allocated memory is not supported by this JVM");
+            }
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
         thread = new Thread(this, "Profiler");
         thread.setDaemon(true);
         thread.start();
@@ -340,14 +429,171 @@ public class Profiler implements Runnable {
             }
         }
 
+        if (useTrie()) {
+            sampleThreads();
+            return;
+        }
         List<Object[]> list;
         if (pid != 0) {
             list = readRunnableStackTraces(pid);
         } else {
             list = getRunnableStackTraces();
         }
-        threadDumps++;
-        processList(list);
+        synchronized (this) {
+            threadDumps++;
+            processList(list);
+        }
+    }
+
+    private boolean useTrie() {
+        return pid == 0 && (lowOverhead || weight != Weight.SAMPLES);
+    }
+
+    private void sampleThreads() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long self = Thread.currentThread().getId();
+        long[] ids = threadMXBean.getAllThreadIds();
+        long[] weights = null;
+        if (weight != Weight.SAMPLES) {
+            Arrays.sort(ids);
+            weights = getThreadDeltas(threadMXBean, ids);
+            // only the threads that used CPU or allocated since the last sample
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (weights[i] > 0) {
+                    ids[n] = ids[i];
+                    weights[n++] = weights[i];
+                }
+            }
+            ids = Arrays.copyOf(ids, n);
+        }
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, depth);
+        synchronized (this) {
+            threadDumps++;
+            for (int i = 0; i < infos.length; i++) {
+                ThreadInfo info = infos[i];
+                if (info == null || info.getThreadId() == self) {
+                    continue;
+                }
+                if (weights == null && info.getThreadState() != Thread.State.RUNNABLE) {
+                    continue;
+                }
+                StackTraceElement[] trace = info.getStackTrace();
+                if (trace.length > 0) {
+                    processStack(trace, weights == null ? 1 : weights[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get how much CPU time or memory each thread used since the previous
+     * sample. The whole amount is attributed to the stack the thread has now.
+     * A thread that was started since then is counted from 0; on the first
+     * sample, all deltas are 0.
+     *
+     * @param threadMXBean the thread bean
+     * @param ids          the thread ids, sorted
+     * @return the deltas, in nanoseconds or bytes
+     */
+    private long[] getThreadDeltas(ThreadMXBean threadMXBean, long[] ids) {
+        long[] values;
+        if (weight == Weight.ALLOCATION) {
+            values = ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(ids);
+        } else if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            values = ((com.sun.management.ThreadMXBean) threadMXBean).getThreadCpuTime(ids);
+        } else {
+            values = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                values[i] = threadMXBean.getThreadCpuTime(ids[i]);
+            }
+        }
+        long[] deltas = new long[ids.length];
+        if (lastThreadIds != null) {
+            for (int i = 0; i < ids.length; i++) {
+                if (values[i] < 0) {
+                    // the thread is no longer alive
+                    continue;
+                }
+                int last = Arrays.binarySearch(lastThreadIds, ids[i]);
+                deltas[i] = last >= 0 ? values[i] - Math.max(lastThreadValues[last], 0) : values[i];
+            }
+        }
+        lastThreadIds = ids.clone();
+        lastThreadValues = values;
+        return deltas;
+    }
+
+    /**
+     * Add one sampled stack to the trie, applying the same rules as
+     * processList, but on frame ids.
+     *
+     * @param trace  the stack, innermost frame first
+     * @param weight the weight of the sample
+     */
+    private void processStack(StackTraceElement[] trace, long weight) {
+        int top = internFrame(trace[0]);
+        // a thread that is waiting now may still have used CPU or allocated
+        // since the previous sample, so only plain samples skip idle threads
+        if (this.weight == Weight.SAMPLES && (frameFlags[top] & IGNORE_THREAD) != 0) {
+            return;
+        }
+        if (stackBuffer.length < depth) {
+            stackBuffer = new int[depth];
+        }
+        int[] buffer = stackBuffer;
+        int length = 0;
+        int last = -1;
+        int group = -1;
+        for (int i = 0; i < trace.length && length < depth; i++) {
+            int id = i == 0 ? top : internFrame(trace[i]);
+            // simple recursive calls are ignored
+            if (id != last && (frameFlags[id] & IGNORE_LINE) == 0) {
+                last = id;
+                buffer[length++] = id;
+                if (group < 0 && (frameFlags[id] & IGNORE_PACKAGE) == 0) {
+                    group = id;
+                }
+            }
+        }
+        if (length == 0) {
+            return;
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int t = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = t;
+        }
+        stacks.add(buffer, length, weight);
+        if (group >= 0) {
+            groupWeights[group] += weight;
+        }
+        total += weight;
+    }
+
+    private int internFrame(StackTraceElement e) {
+        int id = frames.intern(e);
+        if (id >= frameFlags.length) {
+            frameFlags = Arrays.copyOf(frameFlags, frameFlags.length * 2);
+            groupWeights = Arrays.copyOf(groupWeights, groupWeights.length * 2);
+        }
+        if (id == flaggedFrames) {
+            // a new frame: the prefix lists only look at the class and method name
+            String name = e.getClassName() + "." + e.getMethodName();
+            byte flags = 0;
+            if (startsWithAny(name, ignoreLines)) {
+                flags |= IGNORE_LINE;
+            }
+            if (startsWithAny(name, ignorePackages)) {
+                flags |= IGNORE_PACKAGE;
+            }
+            if (startsWithAny(name, ignoreThreads)) {
+                flags |= IGNORE_THREAD;
+            }
+            frameFlags[id] = flags;
+            flaggedFrames++;
+        }
+        return id;
     }
 
     private void processList(List<Object[]> list) {
@@ -366,26 +612,7 @@ public class Profiler implements Runnable {
                     buff.append("at ").append(el).append(LINE_SEPARATOR);
                     if (!packageCounts && !startsWithAny(el, ignorePackages)) {
                         packageCounts = true;
-                        int index = 0;
-                        for (; index < el.length(); index++) {
-                            char c = el.charAt(index);
-                            if (c == '(' || Character.isUpperCase(c)) {
-                                break;
-                            }
-                        }
-                        if (index > 0 && el.charAt(index - 1) == '.') {
-                            index--;
-                        }
-                        if (sumClasses) {
-                            int m = el.indexOf('.', index + 1);
-                            index = m >= 0 ? m : index;
-                        }
-                        if (sumMethods) {
-                            int m = el.indexOf('(', index + 1);
-                            index = m >= 0 ? m : index;
-                        }
-                        String groupName = el.substring(0, index);
-                        increment(summary, groupName, 0);
+                        increment(summary, getGroupName(el), 0);
                     }
                     j++;
                 }
@@ -397,6 +624,28 @@ public class Profiler implements Runnable {
         }
     }
 
+    private String getGroupName(String el) {
+        int index = 0;
+        for (; index < el.length(); index++) {
+            char c = el.charAt(index);
+            if (c == '(' || Character.isUpperCase(c)) {
+                break;
+            }
+        }
+        if (index > 0 && el.charAt(index - 1) == '.') {
+            index--;
+        }
+        if (sumClasses) {
+            int m = el.indexOf('.', index + 1);
+            index = m >= 0 ? m : index;
+        }
+        if (sumMethods) {
+            int m = el.indexOf('(', index + 1);
+            index = m >= 0 ? m : index;
+        }
+        return el.substring(0, index);
+    }
+
     private static boolean startsWithAny(String s, String[] prefixes) {
         for (String p : prefixes) {
             if (p.length() > 0 && s.startsWith(p)) {
@@ -406,17 +655,17 @@ public class Profiler implements Runnable {
         return false;
     }
 
-    private static int increment(HashMap<String, Integer> map, String trace, int minCount) {
-        Integer oldCount = map.get(trace);
+    private static int increment(HashMap<String, Long> map, String trace, int minCount) {
+        Long oldCount = map.get(trace);
         if (oldCount == null) {
-            map.put(trace, 1);
+            map.put(trace, 1L);
         } else {
             map.put(trace, oldCount + 1);
         }
         while (map.size() > MAX_ELEMENTS) {
-            for (Iterator<Map.Entry<String, Integer>> ei =
+            for (Iterator<Map.Entry<String, Long>> ei =
                  map.entrySet().iterator(); ei.hasNext(); ) {
-                Map.Entry<String, Integer> e = ei.next();
+                Map.Entry<String, Long> e = ei.next();
                 if (e.getValue() <= minCount) {
                     ei.remove();
                 }
@@ -439,7 +688,127 @@ public class Profiler implements Runnable {
         return getTopTraces(count);
     }
 
-    private String getTopTraces(int count) {
+    /**
+     * Get the top stack traces collected so far, without stopping the
+     * collection.
+     *
+     * @param count the maximum number of stack traces
+     * @return the stack traces.
+     */
+    public synchronized String getCurrentTop(int count) {
+        if (thread != null) {
+            time = System.currentTimeMillis() - start;
+        }
+        return getTopTraces(count);
+    }
+
+    /**
+     * Discard the data collected so far. Collection continues if it is
+     * running.
+     */
+    public synchronized void reset() {
+        counts.clear();
+        summary.clear();
+        // the trie refers to frame ids, so frames are dropped with it; this
+        // also keeps the tables from growing forever in a long running process
+        stacks.clear();
+        frames.clear();
+        frameFlags = new byte[256];
+        flaggedFrames = 0;
+        groupWeights = new long[256];
+        minCount = 1;
+        total = 0;
+        threadDumps = 0;
+        start = System.currentTimeMillis();
+        time = 0;
+    }
+
+    /**
+     * Get the collected stacks in the collapsed format that flame graph tools
+     * read: one line per distinct stack, with the frames from the outermost to
+     * the innermost separated by ';', then a space and the number of samples.
+     * This does not stop the collection.
+     *
+     * @return the collapsed stacks
+     */
+    public synchronized String getCollapsedStacks() {
+        StringBuilder buff = new StringBuilder();
+        for (Map.Entry<String, Long> e : getCollapsed().entrySet()) {
+            buff.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return buff.toString();
+    }
+
+    /**
+     * Render the collected stacks as a flame graph. The result is a single
+     * HTML page with an inline SVG image that needs no other files. This does
+     * not stop the collection.
+     *
+     * @param title the title of the page
+     * @return the HTML page
+     */
+    public synchronized String getFlameGraph(String title) {
+        FlameGraph graph = new FlameGraph();
+        for (Map.Entry<String, Long> e : getCollapsed().entrySet()) {
+            graph.add(e.getKey().split(";"), e.getValue());
+        }
+        return graph.toHtml(title, weight.unit);
+    }
+
+    /**
+     * Get the collected stacks as a map of collapsed stack to weight, from the
+     * trie if the low-overhead engine is used, otherwise from the stack traces
+     * in counts.
+     *
+     * @return the map
+     */
+    private LinkedHashMap<String, Long> getCollapsed() {
+        LinkedHashMap<String, Long> map = new LinkedHashMap<String, Long>();
+        if (useTrie()) {
+            ArrayList<String> path = new ArrayList<String>();
+            for (int node = 1; node < stacks.size(); node++) {
+                long weight = stacks.getSelfWeight(node);
+                if (weight == 0) {
+                    continue;
+                }
+                path.clear();
+                for (int n = node; n != StackTrie.ROOT; n = stacks.getParent(n)) {
+                    path.add(frames.getName(stacks.getFrame(n)));
+                }
+                map.merge(collapse(path), weight, Long::sum);
+            }
+        } else {
+            for (Map.Entry<String, Long> e : counts.entrySet()) {
+                ArrayList<String> path = new ArrayList<String>();
+                for (String line : e.getKey().split(LINE_SEPARATOR)) {
+                    line = line.trim();
+                    path.add(line.startsWith("at ") ? line.substring(3) : line);
+                }
+                map.merge(collapse(path), e.getValue(), Long::sum);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Join the frames of a stack from the outermost one.
+     *
+     * @param path the frames, innermost first
+     * @return the collapsed stack
+     */
+    private static String collapse(List<String> path) {
+        StringBuilder buff = new StringBuilder();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (buff.length() > 0) {
+                buff.append(';');
+            }
+            // ';' separates frames
+            buff.append(path.get(i).replace(';', ':'));
+        }
+        return buff.toString();
+    }
+
+    private synchronized String getTopTraces(int count) {
         StringBuilder buff = new StringBuilder();
         buff.append("Profiler: top ").append(count).append(" stack trace(s) of ");
         if (time > 0) {
@@ -448,24 +817,71 @@ public class Profiler implements Runnable {
         if (threadDumps > 0) {
             buff.append(" of ").append(threadDumps).append(" thread dumps");
         }
+        if (weight != Weight.SAMPLES) {
+            buff.append(" by ").append(weight.unit);
+        }
         buff.append(":").append(LINE_SEPARATOR);
-        if (counts.size() == 0) {
+        HashMap<String, Long> traces = useTrie() ? getTopStacks(count) : new HashMap<String, Long>(counts);
+        if (traces.size() == 0) {
             buff.append("(none)").append(LINE_SEPARATOR);
         }
-        HashMap<String, Integer> copy = new HashMap<String, Integer>(counts);
-        appendTop(buff, copy, count, total, false);
+        appendTop(buff, traces, count, total, false);
         buff.append("summary:").append(LINE_SEPARATOR);
-        copy = new HashMap<String, Integer>(summary);
-        appendTop(buff, copy, count, total, true);
+        HashMap<String, Long> groups = useTrie() ? getGroups() : new HashMap<String, Long>(summary);
+        appendTop(buff, groups, count, total, true);
         buff.append('.');
         return buff.toString();
     }
 
-    private static void appendTop(StringBuilder buff, HashMap<String, Integer> map, int count, int total, boolean table) {
-        for (int x = 0, min = 0; ; ) {
-            int highest = 0;
-            Map.Entry<String, Integer> best = null;
-            for (Map.Entry<String, Integer> el : map.entrySet()) {
+    /**
+     * Build the text of the heaviest stacks of the trie: the top count, and
+     * the ones that have the same weight as the last of them.
+     *
+     * @param count the number of stacks
+     * @return the map of stack trace to weight
+     */
+    private HashMap<String, Long> getTopStacks(int count) {
+        ArrayList<Integer> nodes = new ArrayList<Integer>();
+        for (int node = 1; node < stacks.size(); node++) {
+            if (stacks.getSelfWeight(node) > 0) {
+                nodes.add(node);
+            }
+        }
+        nodes.sort((a, b) -> Long.compare(stacks.getSelfWeight(b), stacks.getSelfWeight(a)));
+        HashMap<String, Long> map = new HashMap<String, Long>();
+        long min = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            long weight = stacks.getSelfWeight(node);
+            if (i >= count && weight < min) {
+                break;
+            }
+            min = weight;
+            StringBuilder buff = new StringBuilder();
+            for (int n = node; n != StackTrie.ROOT; n = stacks.getParent(n)) {
+                buff.append("at ").append(frames.getName(stacks.getFrame(n))).append(LINE_SEPARATOR);
+            }
+            map.merge(buff.toString().trim(), weight, Long::sum);
+        }
+        return map;
+    }
+
+    private HashMap<String, Long> getGroups() {
+        HashMap<String, Long> map = new HashMap<String, Long>();
+        for (int id = 0; id < frames.size(); id++) {
+            if (groupWeights[id] > 0) {
+                map.merge(getGroupName(frames.getName(id)), groupWeights[id], Long::sum);
+            }
+        }
+        return map;
+    }
+
+    private static void appendTop(StringBuilder buff, HashMap<String, Long> map, int count, long total, boolean table) {
+        int x = 0;
+        for (long min = 0; ; ) {
+            long highest = 0;
+            Map.Entry<String, Long> best = null;
+            for (Map.Entry<String, Long> el : map.entrySet()) {
                 if (el.getValue() > highest) {
                     best = el;
                     highest = el.getValue();
@@ -481,8 +897,8 @@ public class Profiler implements Runnable {
                 }
                 min = best.getValue();
             }
-            int c = best.getValue();
-            int percent = 100 * c / Math.max(total, 1);
+            long c = best.getValue();
+            long percent = 100 * c / Math.max(total, 1);
             if (table) {
                 if (percent > 1) {
                     buff.append(percent).append("%: ").append(best.getKey()).append(LINE_SEPARATOR);
@@ -497,6 +913,35 @@ public class Profiler implements Runnable {
         }
     }
 
+    /**
+     * What a sampled stack is weighted by.
+     */
+    public enum Weight {
+
+        /**
+         * One per sample of a RUNNABLE thread
+         */
+        SAMPLES("samples"),
+
+        /**
+         * The CPU time the thread used since the previous sample, in
+         * nanoseconds; any thread state
+         */
+        CPU("cpu-ns"),
+
+        /**
+         * The bytes the thread allocated since the previous sample; any
+         * thread state (requires a HotSpot compatible JVM)
+         */
+        ALLOCATION("bytes");
+
+        private final String unit;
+
+        Weight(String unit) {
+            this.unit = unit;
+        }
+    }
+
     /**
      * Run the command line version of the profiler. The JDK (jps and jstack)
      * need to be in the path.
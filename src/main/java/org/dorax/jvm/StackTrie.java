@@ -0,0 +1,172 @@
+package org.dorax.jvm;
+
+import java.util.Arrays;
+
+/**
+ * A prefix tree of stacks. Each node is one frame id (see {@link FrameTable})
+ * below its caller; node 0 is the root. A sample is added by walking from the
+ * outermost frame to the innermost one, so stacks that share callers share
+ * nodes, and adding a known stack does not allocate.
+ * <p>
+ * Nodes are kept in parallel arrays, and children are found with an open
+ * addressing hash table keyed by (parent, frame). Once the maximum number of
+ * nodes is reached, a new stack is cut off at the deepest existing node.
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class StackTrie {
+
+    static final int ROOT = 0;
+
+    private final int maxNodes;
+    private int[] frames;
+    private int[] parents;
+    private long[] selfWeights;
+    private int size;
+
+    /**
+     * (parent << 32 | frame) of each slot, and the child node, or 0 if the
+     * slot is free (the root is never a child)
+     */
+    private long[] keys;
+    private int[] children;
+
+    /**
+     * Create an empty trie.
+     *
+     * @param maxNodes the maximum number of nodes, including the root
+     */
+    StackTrie(int maxNodes) {
+        this.maxNodes = maxNodes;
+        clear();
+    }
+
+    /**
+     * Remove all stacks.
+     */
+    void clear() {
+        frames = new int[256];
+        parents = new int[256];
+        selfWeights = new long[256];
+        keys = new long[512];
+        children = new int[512];
+        frames[ROOT] = -1;
+        parents[ROOT] = -1;
+        size = 1;
+    }
+
+    /**
+     * Add a stack.
+     *
+     * @param stack  the frame ids, outermost (caller) first
+     * @param length the number of frames to use
+     * @param weight the weight of the sample
+     * @return the node the weight was added to
+     */
+    int add(int[] stack, int length, long weight) {
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            int child = getChild(node, stack[i]);
+            if (child == 0) {
+                if (size >= maxNodes) {
+                    break;
+                }
+                child = addChild(node, stack[i]);
+            }
+            node = child;
+        }
+        selfWeights[node] += weight;
+        return node;
+    }
+
+    /**
+     * Get the number of nodes, including the root.
+     *
+     * @return the number of nodes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the frame id of a node.
+     *
+     * @param node the node
+     * @return the frame id, or -1 for the root
+     */
+    int getFrame(int node) {
+        return frames[node];
+    }
+
+    /**
+     * Get the parent (caller) of a node.
+     *
+     * @param node the node
+     * @return the parent, or -1 for the root
+     */
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Get the weight of the samples that ended at this node.
+     *
+     * @param node the node
+     * @return the weight
+     */
+    long getSelfWeight(int node) {
+        return selfWeights[node];
+    }
+
+    private int getChild(int parent, int frame) {
+        long key = (long) parent << 32 | frame;
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int child = children[i];
+            if (child == 0 || keys[i] == key) {
+                return child;
+            }
+        }
+    }
+
+    private int addChild(int parent, int frame) {
+        if (size == frames.length) {
+            int length = size * 2;
+            frames = Arrays.copyOf(frames, length);
+            parents = Arrays.copyOf(parents, length);
+            selfWeights = Arrays.copyOf(selfWeights, length);
+        }
+        int node = size++;
+        frames[node] = frame;
+        parents[node] = parent;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        } else {
+            put((long) parent << 32 | frame, node);
+        }
+        return node;
+    }
+
+    private void rehash(int length) {
+        keys = new long[length];
+        children = new int[length];
+        for (int node = 1; node < size; node++) {
+            put((long) parents[node] << 32 | frames[node], node);
+        }
+    }
+
+    private void put(long key, int child) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (children[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        children[i] = child;
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
@@ -0,0 +1,48 @@
+package org.dorax.network;
+
+/**
+ * 滑动窗口流量计数
+ * 时间被划分为若干个等长的槽位，计数累加到当前槽位，平均值按最近一轮所有槽位计算。
+ * 单进程使用 {@link SimpleFlowData}，多个节点共享同一个计数时使用 {@link RedisFlowData}。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public interface FlowData {
+
+    /**
+     * 当前槽位增加指定数量
+     *
+     * @param count 数量
+     * @return 增加后当前槽位的计数
+     */
+    int addAndGet(int count);
+
+    /**
+     * 当前槽位加一
+     *
+     * @return 增加后当前槽位的计数
+     */
+    int incrementAndGet();
+
+    /**
+     * 当前槽位的计数
+     *
+     * @return 计数
+     */
+    int getCurrentCount();
+
+    /**
+     * 最近一轮槽位的平均计数
+     *
+     * @return 平均计数
+     */
+    int getAverageCount();
+
+    /**
+     * 槽位数
+     *
+     * @return 槽位数
+     */
+    int getSlotCount();
+}
@@ -0,0 +1,166 @@
+package org.dorax.network;
+
+import org.dorax.cache.RedisUtils;
+import org.dorax.idx.SystemClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个节点共享的滑动窗口流量计数，接口与 {@link SimpleFlowData} 相同
+ * 每个槽位对应 Redis 中的一个计数键，槽位按墙上时钟对齐，所有节点落在同一个槽位；
+ * 计数先累加在本地，由后台线程按同步周期通过一次 Lua 脚本 INCRBY 到 Redis 并取回全局计数，
+ * 因此读写都不访问网络，返回的计数是“上次同步的全局计数 + 本地未同步的计数”，最多滞后一个同步周期。
+ * Redis 不可用时本地计数保留到下次同步，期间只反映本节点的流量。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisFlowData implements FlowData, Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisFlowData.class);
+
+    private static final String INCREMENT_SCRIPT =
+            "local v = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "return v";
+
+    private final String prefix;
+    private final int slotCount;
+    private final int interval;
+    private final long ttl;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ScheduledExecutorService timer;
+
+    private volatile int global;
+    private volatile int average;
+    private long slot;
+
+    /**
+     * 构造函数，同步周期为槽位时长的十分之一
+     *
+     * @param name      计数名称，相同名称的实例共享计数
+     * @param slotCount 槽位数
+     * @param interval  每个槽位的时长（毫秒）
+     */
+    public RedisFlowData(String name, int slotCount, int interval) {
+        this(name, slotCount, interval, Math.max(10, interval / 10));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param name         计数名称，相同名称的实例共享计数
+     * @param slotCount    槽位数
+     * @param interval     每个槽位的时长（毫秒）
+     * @param syncInterval 与 Redis 同步的周期（毫秒）
+     */
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    public RedisFlowData(String name, int slotCount, int interval, int syncInterval) {
+        if (slotCount <= 0 || interval <= 0 || syncInterval <= 0) {
+            throw new IllegalArgumentException("slotCount, interval and syncInterval must be greater than 0");
+        }
+        // 哈希标签保证同一计数的所有槽位落在同一个分片
+        this.prefix = "flow:{" + name + "}:";
+        this.slotCount = slotCount;
+        this.interval = interval;
+        this.ttl = (long) interval * (slotCount + 1);
+        this.slot = SystemClock.now() / interval;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("redis flow control thread");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::sync, 0, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int addAndGet(int count) {
+        return global + pending.addAndGet(count);
+    }
+
+    @Override
+    public int incrementAndGet() {
+        return addAndGet(1);
+    }
+
+    @Override
+    public int getCurrentCount() {
+        return global + pending.get();
+    }
+
+    @Override
+    public int getAverageCount() {
+        return average;
+    }
+
+    @Override
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * 把本地计数同步到 Redis 并取回全局计数，跨过槽位边界时重新计算平均值，正常情况下由后台线程调用
+     */
+    public synchronized void sync() {
+        try {
+            int delta = pending.getAndSet(0);
+            Long count = increment(slot, delta);
+            if (count == null) {
+                pending.addAndGet(delta);
+            }
+            long now = SystemClock.now() / interval;
+            if (now == slot) {
+                if (count != null) {
+                    global = count.intValue();
+                }
+                return;
+            }
+            average = sum(slot) / slotCount;
+            slot = now;
+            Long current = increment(now, 0);
+            global = current == null ? 0 : current.intValue();
+        } catch (Exception e) {
+            logger.error("sync {}: ", prefix, e);
+        }
+    }
+
+    private Long increment(long slot, int delta) {
+        Object result = RedisUtils.eval(INCREMENT_SCRIPT, prefix + slot, String.valueOf(delta), String.valueOf(ttl));
+        return result instanceof Long ? (Long) result : null;
+    }
+
+    private int sum(long lastSlot) {
+        List<String> keys = new ArrayList<>(slotCount);
+        for (long s = lastSlot - slotCount + 1; s <= lastSlot; s++) {
+            keys.add(prefix + s);
+        }
+        List<String> values = RedisUtils.mget(keys);
+        int total = 0;
+        if (values != null) {
+            for (String value : values) {
+                if (value != null) {
+                    total += Integer.parseInt(value);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 停止后台同步，并把剩余的本地计数同步到 Redis
+     */
+    @Override
+    public void close() {
+        timer.shutdown();
+        sync();
+    }
+}
@@ -0,0 +1,187 @@
+package org.dorax.network;
+
+import org.dorax.cache.RedisUtils;
+import org.dorax.idx.SystemClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个节点共享的令牌桶限流器
+ * 令牌桶保存在 Redis 的一个 Hash 中，补充和扣减在同一个 Lua 脚本里完成，时间取自 Redis 服务端，不受各节点时钟偏差影响。
+ * 每次访问 Redis 时按预取数量一次多取一些令牌放在本地，后续请求直接从本地扣减，大部分判断不需要网络往返；
+ * 本地令牌只在租期内有效，过期丢弃，避免空闲节点囤积令牌；被拒绝后在补充出一次预取量所需的时间内直接在本地拒绝，
+ * 限流期间也不会每个请求都访问 Redis。代价是全局速率在短时间内可能被各节点的预取量放大，
+ * 预取量越小越精确，越大访问 Redis 越少。Redis 不可用时按 {@link #setFailOpen(boolean)} 决定放行或拒绝。
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisRateLimiter {
+
+    private static Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    /**
+     * KEYS[1] 令牌桶；ARGV[1] 每毫秒补充的令牌数，ARGV[2] 容量，ARGV[3] 希望取得的令牌数，ARGV[4] 至少需要的令牌数。
+     * 可用令牌不少于至少需要的数量时返回实际取得的数量，否则不扣减并返回 0。
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "redis.replicate_commands() "
+                    + "local rate = tonumber(ARGV[1]) "
+                    + "local capacity = tonumber(ARGV[2]) "
+                    + "local requested = tonumber(ARGV[3]) "
+                    + "local minimum = tonumber(ARGV[4]) "
+                    + "local t = redis.call('TIME') "
+                    + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) "
+                    + "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') "
+                    + "local tokens = tonumber(bucket[1]) or capacity "
+                    + "local ts = tonumber(bucket[2]) or now "
+                    + "if now > ts then tokens = math.min(capacity, tokens + (now - ts) * rate) ts = now end "
+                    + "local granted = 0 "
+                    + "if tokens >= minimum then granted = math.min(requested, math.floor(tokens)) tokens = tokens - granted end "
+                    + "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts)) "
+                    + "redis.call('PEXPIRE', KEYS[1], math.min(math.ceil(capacity / rate), 86400000) + 1000) "
+                    + "return granted";
+
+    private final String key;
+    private final double permitsPerMillis;
+    private final long capacity;
+    private final AtomicLong tokens = new AtomicLong();
+
+    private volatile long leaseDeadline;
+    private volatile long rejectUntil;
+    private volatile int prefetch;
+    private volatile long leaseMillis = 100;
+    private volatile boolean failOpen = true;
+
+    /**
+     * 构造函数，预取数量默认为每秒令牌数的 1%，至少为 1
+     *
+     * @param name             限流器名称，相同名称的实例共享令牌桶
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param capacity         令牌桶容量，即允许的最大突发量
+     */
+    public RedisRateLimiter(String name, double permitsPerSecond, long capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and capacity must be greater than 0");
+        }
+        this.key = "rate:{" + name + "}";
+        this.permitsPerMillis = permitsPerSecond / 1000;
+        this.capacity = capacity;
+        this.prefetch = (int) Math.max(1, Math.min(capacity, permitsPerSecond / 100));
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 尝试获取指定数量的令牌，不等待
+     *
+     * @param permits 令牌数
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be greater than 0");
+        }
+        if (takeLocal(permits)) {
+            return true;
+        }
+        if (SystemClock.now() < rejectUntil) {
+            return false;
+        }
+        synchronized (this) {
+            // 等待锁期间其他线程可能已经补充了本地令牌
+            if (takeLocal(permits)) {
+                return true;
+            }
+            long now = SystemClock.now();
+            if (now < rejectUntil) {
+                return false;
+            }
+            if (now >= leaseDeadline) {
+                tokens.set(0);
+            }
+            // 本地不足的零头留在本地，本次需要的令牌全部从 Redis 获取，避免与并发的本地扣减相互覆盖
+            Object result = RedisUtils.eval(ACQUIRE_SCRIPT, key, String.valueOf(permitsPerMillis),
+                    String.valueOf(capacity), String.valueOf(Math.max(prefetch, permits)), String.valueOf(permits));
+            if (!(result instanceof Long)) {
+                logger.warn("rate limiter {} is unavailable, {} request", key, failOpen ? "allow" : "reject");
+                return failOpen;
+            }
+            long granted = (Long) result;
+            if (granted == 0) {
+                long refill = (long) Math.ceil(Math.max(prefetch, permits) / permitsPerMillis);
+                rejectUntil = now + Math.min(refill, leaseMillis);
+                return false;
+            }
+            tokens.addAndGet(granted - permits);
+            leaseDeadline = now + leaseMillis;
+            return true;
+        }
+    }
+
+    private boolean takeLocal(int permits) {
+        if (SystemClock.now() >= leaseDeadline) {
+            return false;
+        }
+        for (; ; ) {
+            long current = tokens.get();
+            if (current < permits) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - permits)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 本地剩余的令牌数
+     *
+     * @return 令牌数，租期已过时为 0
+     */
+    public long getLocalTokens() {
+        return SystemClock.now() < leaseDeadline ? tokens.get() : 0;
+    }
+
+    /**
+     * 设置每次访问 Redis 时预取的令牌数
+     *
+     * @param prefetch 预取数量，1 表示不预取
+     */
+    public void setPrefetch(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be greater than 0");
+        }
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * 设置本地令牌的租期，默认 100 毫秒
+     *
+     * @param leaseMillis 租期（毫秒）
+     */
+    public void setLeaseMillis(long leaseMillis) {
+        if (leaseMillis <= 0) {
+            throw new IllegalArgumentException("leaseMillis must be greater than 0");
+        }
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * 设置 Redis 不可用时是否放行，默认放行
+     *
+     * @param failOpen 是否放行
+     */
+    public void setFailOpen(boolean failOpen) {
+        this.failOpen = failOpen;
+    }
+}
@@ -11,7 +11,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author wuchunfu
  * @date 2020-02-24
  */
-public class SimpleFlowData {
+public class SimpleFlowData implements FlowData {
     private int index = 0;
     private AtomicInteger[] data;
     private int average;
@@ -33,10 +33,12 @@ public class SimpleFlowData {
         timer.scheduleAtFixedRate(this::rotateSlot, interval, interval, TimeUnit.MILLISECONDS);
     }
 
+    @Override
     public int addAndGet(int count) {
         return data[index].addAndGet(count);
     }
 
+    @Override
     public int incrementAndGet() {
         return data[index].incrementAndGet();
     }
@@ -51,14 +53,17 @@ public class SimpleFlowData {
         data[index].set(0);
     }
 
+    @Override
     public int getCurrentCount() {
         return data[index].get();
     }
 
+    @Override
     public int getAverageCount() {
         return this.average;
     }
 
+    @Override
     public int getSlotCount() {
         return this.slotCount;
     }
@@ -0,0 +1,274 @@
+package org.dorax.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的 Redis 替身，只实现 GET、SET、DEL、EXISTS、PING、QUIT、PSUBSCRIBE、PUNSUBSCRIBE，
+ * 并可以向订阅者推送键空间通知
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+final class FakeRedisServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger psubscribeCount = new AtomicInteger();
+
+    FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "fake-redis-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 直接修改数据，不产生通知
+     */
+    void put(String key, String value) {
+        data.put(key, value);
+    }
+
+    /**
+     * 收到的 PSUBSCRIBE 命令数
+     */
+    int getPsubscribeCount() {
+        return psubscribeCount.get();
+    }
+
+    /**
+     * 向所有订阅了匹配模式的连接推送一条键空间通知
+     *
+     * @param database 数据库
+     * @param key      键
+     * @param event    事件，例如 set、del、expired
+     */
+    void publishKeyspaceEvent(int database, String key, String event) throws IOException {
+        String channel = "__keyspace@" + database + "__:" + key;
+        for (Subscriber subscriber : subscribers) {
+            if (channel.startsWith(subscriber.prefix)) {
+                subscriber.send(array("pmessage", subscriber.pattern, channel, event));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                Thread handler = new Thread(() -> handle(socket), "fake-redis-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        Subscriber subscriber = null;
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                String name = command.get(0).toUpperCase();
+                byte[] reply;
+                switch (name) {
+                    case "PING":
+                        reply = simple("PONG");
+                        break;
+                    case "QUIT":
+                        write(out, simple("OK"));
+                        return;
+                    case "GET":
+                        reply = bulk(data.get(command.get(1)));
+                        break;
+                    case "SET":
+                        data.put(command.get(1), command.get(2));
+                        reply = simple("OK");
+                        break;
+                    case "EXISTS":
+                        reply = integer(data.containsKey(command.get(1)) ? 1 : 0);
+                        break;
+                    case "DEL":
+                        reply = integer(data.remove(command.get(1)) == null ? 0 : 1);
+                        break;
+                    case "PSUBSCRIBE":
+                        psubscribeCount.incrementAndGet();
+                        subscriber = new Subscriber(out, command.get(1));
+                        subscribers.add(subscriber);
+                        reply = concat(header(3), bulk("psubscribe"), bulk(command.get(1)), integer(1));
+                        break;
+                    case "PUNSUBSCRIBE":
+                        if (subscriber != null) {
+                            subscribers.remove(subscriber);
+                        }
+                        String pattern = subscriber == null ? null : subscriber.pattern;
+                        subscriber = null;
+                        reply = concat(header(3), bulk("punsubscribe"), bulk(pattern), integer(0));
+                        break;
+                    default:
+                        reply = ("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.UTF_8);
+                }
+                if (subscriber != null) {
+                    subscriber.send(reply);
+                } else {
+                    write(out, reply);
+                }
+            }
+        } catch (IOException e) {
+            // 连接被对方关闭
+        } finally {
+            if (subscriber != null) {
+                subscribers.remove(subscriber);
+            }
+            sockets.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // ignore
+            }
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        if (header.charAt(0) != '*') {
+            throw new IOException("unexpected " + header);
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String length = readLine(in);
+            if (length == null) {
+                return null;
+            }
+            byte[] bytes = new byte[Integer.parseInt(length.substring(1))];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+            readLine(in);
+            args.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\r') {
+                in.read();
+                return new String(buff.toByteArray(), StandardCharsets.UTF_8);
+            }
+            buff.write(c);
+        }
+        return null;
+    }
+
+    private static void write(OutputStream out, byte[] reply) throws IOException {
+        synchronized (out) {
+            out.write(reply);
+            out.flush();
+        }
+    }
+
+    private static byte[] simple(String s) {
+        return ("+" + s + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] integer(long value) {
+        return (":" + value + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bulk(String s) {
+        if (s == null) {
+            return "$-1\r\n".getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return concat(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8),
+                bytes, "\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] header(int count) {
+        return ("*" + count + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] array(String... strings) {
+        byte[] result = header(strings.length);
+        for (String s : strings) {
+            result = concat(result, bulk(s));
+        }
+        return result;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            buff.write(part, 0, part.length);
+        }
+        return buff.toByteArray();
+    }
+
+    private static final class Subscriber {
+        private final OutputStream out;
+        private final String pattern;
+        private final String prefix;
+
+        Subscriber(OutputStream out, String pattern) {
+            this.out = out;
+            this.pattern = pattern;
+            this.prefix = pattern.endsWith("*") ? pattern.substring(0, pattern.length() - 1) : pattern;
+        }
+
+        void send(byte[] reply) throws IOException {
+            write(out, reply);
+        }
+    }
+}
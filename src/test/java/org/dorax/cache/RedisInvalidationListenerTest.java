@@ -0,0 +1,113 @@
+package org.dorax.cache;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RedisInvalidationListener} 的测试，使用 {@link FakeRedisServer} 代替 Redis
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class RedisInvalidationListenerTest {
+
+    private static FakeRedisServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new FakeRedisServer();
+        RedisUtils.init(server.getHost(), server.getPort(), null);
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void keyspaceEventEvictsNearCacheEntry() throws Exception {
+        RedisNearCache nearCache = new RedisNearCache(100, 60000, 60000);
+        CountDownLatch subscribed = new CountDownLatch(1);
+        RedisInvalidationListener listener = new RedisInvalidationListener(this::connect, 0, "",
+                nearCache::invalidateAll, () -> {
+            nearCache.invalidateAll();
+            subscribed.countDown();
+        }).start();
+        try {
+            assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+            server.put("user:1", "a");
+            assertEquals("a", nearCache.get("user:1"));
+
+            // 没有通知时本地条目一直有效
+            server.put("user:1", "b");
+            assertEquals("a", nearCache.get("user:1"));
+            assertEquals(1, nearCache.localSize());
+
+            server.publishKeyspaceEvent(0, "user:1", "set");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (nearCache.localSize() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, nearCache.localSize());
+            assertEquals("b", nearCache.get("user:1"));
+        } finally {
+            listener.close();
+        }
+    }
+
+    @Test
+    public void closeStopsSubscribedThread() throws Exception {
+        AtomicReference<Thread> subscriber = new AtomicReference<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        RedisInvalidationListener listener = new RedisInvalidationListener(() -> {
+            subscriber.set(Thread.currentThread());
+            return connect();
+        }, 0, "", keys -> {
+        }, subscribed::countDown).start();
+        assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+        listener.close();
+        subscriber.get().join(5000);
+        assertFalse(subscriber.get().isAlive());
+    }
+
+    @Test
+    public void closeBeforeSubscribeStopsSubscriber() throws Exception {
+        int before = server.getPsubscribeCount();
+        AtomicReference<Thread> subscriber = new AtomicReference<>();
+        CountDownLatch connecting = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        RedisInvalidationListener listener = new RedisInvalidationListener(() -> {
+            subscriber.set(Thread.currentThread());
+            connecting.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                // close() 会中断订阅线程，这里照常返回连接，由订阅线程自己发现已经关闭
+            }
+            return connect();
+        }, 0, "", keys -> {
+        }, () -> {
+        }).start();
+        assertTrue(connecting.await(5, TimeUnit.SECONDS));
+        // 订阅线程正在建立连接，还没有进入 psubscribe
+        listener.close();
+        proceed.countDown();
+        subscriber.get().join(5000);
+        assertFalse(subscriber.get().isAlive());
+        assertEquals(before, server.getPsubscribeCount());
+    }
+
+    private Jedis connect() {
+        return new Jedis(server.getHost(), server.getPort());
+    }
+}
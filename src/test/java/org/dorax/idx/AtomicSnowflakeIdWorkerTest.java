@@ -0,0 +1,163 @@
+package org.dorax.idx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link AtomicSnowflakeIdWorker} 的测试，时钟回退和序列进位通过可控的 timeGen() 模拟
+ *
+ * @author wuchunfu
+ * @date 2026-10-17
+ */
+public class AtomicSnowflakeIdWorkerTest {
+
+    private static final long TWEPOCH = 1420041600000L;
+    private static final long T = 1790000000000L;
+
+    @Test
+    public void concurrentIdsAreUnique() throws Exception {
+        AtomicSnowflakeIdWorker worker = new AtomicSnowflakeIdWorker(1, 2);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int singles = 20000;
+        int batches = 200;
+        int batchSize = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    int duplicates = 0;
+                    for (int i = 0; i < singles; i++) {
+                        if (!ids.add(worker.nextId())) {
+                            duplicates++;
+                        }
+                    }
+                    for (int i = 0; i < batches; i++) {
+                        for (long id : worker.nextIds(batchSize)) {
+                            if (!ids.add(id)) {
+                                duplicates++;
+                            }
+                        }
+                    }
+                    return duplicates;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(threads * (singles + batches * batchSize), ids.size());
+    }
+
+    @Test
+    public void sequenceCarriesOverToNextMillisecond() {
+        TestWorker worker = new TestWorker(T);
+        long previous = -1;
+        for (int i = 0; i < 4096; i++) {
+            long id = worker.nextId();
+            assertEquals(T, timestamp(id));
+            assertEquals(i, sequence(id));
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 序列用完，等待时钟走到下一毫秒
+        worker.tickOnRead = true;
+        long id = worker.nextId();
+        assertEquals(T + 1, timestamp(id));
+        assertEquals(0, sequence(id));
+        assertTrue(id > previous);
+    }
+
+    @Test
+    public void batchCarriesOverToNextMillisecond() {
+        TestWorker worker = new TestWorker(T);
+        worker.tickOnRead = true;
+        long[] ids = new long[4100];
+        worker.nextIds(ids);
+        assertEquals(T, timestamp(ids[4095]));
+        assertEquals(4095, sequence(ids[4095]));
+        assertEquals(T + 1, timestamp(ids[4096]));
+        assertEquals(0, sequence(ids[4096]));
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+    }
+
+    @Test
+    public void clockBackwardsWaitsBorrowsOrRejects() {
+        TestWorker worker = new TestWorker(T);
+        worker.setClockBackwardsTolerance(5, 1000);
+        long first = worker.nextId();
+
+        // 回退 3 毫秒，在等待范围内：等时钟回到 T
+        worker.now = T - 3;
+        worker.tickOnRead = true;
+        long waited = worker.nextId();
+        assertTrue(waited > first);
+        assertEquals(T, timestamp(waited));
+        assertEquals(1, worker.getClockWaitCount());
+        assertEquals(0, worker.getClockBorrowCount());
+
+        // 回退 100 毫秒，在借用范围内：沿用 T 继续分配序列，不等待
+        worker.tickOnRead = false;
+        worker.now = T - 100;
+        long borrowed = worker.nextId();
+        assertTrue(borrowed > waited);
+        assertEquals(T, timestamp(borrowed));
+        assertEquals(1, worker.getClockBorrowCount());
+
+        // 回退 5 秒，超过借用范围：拒绝生成
+        worker.now = T - 5000;
+        try {
+            worker.nextId();
+            fail("expected the clock rollback to be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("Clock moved backwards"));
+        }
+        assertEquals(1, worker.getClockRejectCount());
+        assertEquals(1, worker.getClockWaitCount());
+        assertEquals(1, worker.getClockBorrowCount());
+        assertEquals(5000, worker.getMaxClockBackwardsMillis());
+    }
+
+    private static long timestamp(long id) {
+        return (id >>> 22) + TWEPOCH;
+    }
+
+    private static long sequence(long id) {
+        return id & 4095;
+    }
+
+    /**
+     * 时钟由测试控制，tickOnRead 为 true 时每读一次前进 1 毫秒，使等待时钟的循环能够结束
+     */
+    private static final class TestWorker extends AtomicSnowflakeIdWorker {
+        private volatile long now;
+        private volatile boolean tickOnRead;
+
+        TestWorker(long now) {
+            super(3, 4);
+            this.now = now;
+        }
+
+        @Override
+        protected long timeGen() {
+            return tickOnRead ? now++ : now;
+        }
+    }
+}